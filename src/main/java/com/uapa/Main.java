@@ -1,33 +1,134 @@
 package com.uapa;
 
 import javax.swing.SwingUtilities;
-import com.uapa.config.DatabaseConnector;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import com.uapa.config.H2DatabaseConfig;
 import com.uapa.config.H2DatabaseConnector;
+import com.uapa.config.PooledDatabaseConnector;
 import com.uapa.controller.InvoiceController;
+import com.uapa.event.EventJournalConfig;
+import com.uapa.event.EventPublisherConfig;
+import com.uapa.event.InvoiceEventBus;
+import com.uapa.event.InvoiceEventFilter;
+import com.uapa.event.InvoiceEventJournal;
 import com.uapa.event.InvoiceEventPublisher;
+import com.uapa.event.InvoiceEventType;
+import com.uapa.event.JournalingInvoiceEventPublisher;
 import com.uapa.event.SimpleInvoiceEventPublisher;
+import com.uapa.repository.CachingInvoiceRepository;
+import com.uapa.repository.InvoiceOutbox;
 import com.uapa.repository.InvoiceRepository;
+import com.uapa.repository.InvoiceRepositoryConfig;
 import com.uapa.repository.InvoiceRepositoryImpl;
-import com.uapa.service.InvoiceService;
 import com.uapa.service.InvoiceServiceImpl;
+import com.uapa.service.OutboxRelay;
 import com.uapa.view.InvoiceRealView;
 
 public class Main {
+    // Las rutas se pueden cambiar con -Duapa.database.file=... y -Duapa.events.dir=...
+    static final String DATABASE_FILE_PROPERTY = "uapa.database.file";
+    static final String EVENT_JOURNAL_DIR_PROPERTY = "uapa.events.dir";
+    // Eventos del diario que se vuelven a mostrar en el log al arrancar
+    private static final int LOG_REPLAY_EVENTS = 1000;
+
     public static void main(String[] args) {
-        DatabaseConnector connector = new H2DatabaseConnector();
-        InvoiceRepository repository = new InvoiceRepositoryImpl(connector);
-        // Creamos el publicador de eventos
-        InvoiceEventPublisher eventPublisher = new SimpleInvoiceEventPublisher();
-        InvoiceService service = new InvoiceServiceImpl(repository, eventPublisher);
+        // Las conexiones se reutilizan desde un pool en lugar de abrir una por llamada
+        PooledDatabaseConnector connector = new PooledDatabaseConnector(new H2DatabaseConnector(databaseConfig()));
+        // Cada factura guardada deja su evento en el outbox dentro de la misma transacción
+        // Las consultas por id de las facturas más pedidas se sirven desde memoria
+        InvoiceRepository repository = new CachingInvoiceRepository(new InvoiceRepositoryImpl(connector,
+                InvoiceRepositoryConfig.builder().outboxEnabled(true).build()));
+        // Creamos el publicador de eventos; los observadores se notifican en sus propios hilos
+        // y reciben los eventos en lotes pequeños
+        SimpleInvoiceEventPublisher eventPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.batched());
+        // Los eventos se guardan en un diario en disco antes de entregarse
+        JournalingInvoiceEventPublisher journalingPublisher = openJournal(eventPublisher);
+        InvoiceEventPublisher livePublisher = journalingPublisher != null ? journalingPublisher : eventPublisher;
+        // Todos los eventos pasan por el bus: los de facturas guardadas siguen al diario y a
+        // las vistas, y los fallos de guardado, que las vistas no reciben, se anotan aquí
+        InvoiceEventBus eventBus = new InvoiceEventBus();
+        eventBus.subscribe(InvoiceEventFilter.of(InvoiceEventType.SAVED), livePublisher::publishEvent);
+        eventBus.subscribe(InvoiceEventFilter.of(InvoiceEventType.FAILED), event -> System.err.println(
+                "[Main] No se pudo guardar la factura " + event.getInvoice().getId() + ": " + event.getCause()));
+        // El relay publica los eventos del outbox; el servicio solo le avisa de que hay nuevos
+        OutboxRelay outboxRelay = new OutboxRelay(new InvoiceOutbox(connector), eventBus);
+        outboxRelay.start();
+        InvoiceServiceImpl service = new InvoiceServiceImpl(repository, outboxRelay);
+        // Al cerrar la aplicación se procesan las facturas que queden en cola
+        // y después se entregan los eventos pendientes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.shutdown();
+            outboxRelay.close();
+            if (journalingPublisher != null) {
+                journalingPublisher.close();
+            } else {
+                eventPublisher.close();
+            }
+            // Al cerrar la última conexión H2 escribe los cambios retrasados y cierra el fichero
+            connector.close();
+        }));
         InvoiceController controller = new InvoiceController(service);
 
         SwingUtilities.invokeLater(() -> {
-            InvoiceRealView view = new InvoiceRealView(controller);
+            InvoiceRealView view = new InvoiceRealView(controller, eventPublisher);
             // La vista se suscribe al publicador de eventos
             // (La vista no conoce la implementación del publicador; esto se puede hacer
             // aquí o dentro de la vista si se inyecta el publicador)
-            ((SimpleInvoiceEventPublisher) eventPublisher).registerObserver(view.getLogAreaObserver());
+            if (journalingPublisher != null) {
+                // El log de la vista se suscribe tarde: recupera primero los eventos del diario.
+                // La reproducción se hace fuera del EDT; el observador ya agrupa las líneas por frame
+                Thread catchUp = new Thread(() -> journalingPublisher.subscribe(view.getLogAreaObserver(),
+                        logReplayOffset(journalingPublisher.getJournal())), "invoice-log-catch-up");
+                catchUp.setDaemon(true);
+                catchUp.start();
+            } else {
+                eventPublisher.registerObserver(view.getLogAreaObserver());
+            }
             view.setVisible(true);
         });
     }
+
+    static H2DatabaseConfig databaseConfig() {
+        return H2DatabaseConfig.builder()
+                .mode(H2DatabaseConfig.Mode.FILE)
+                .file(databaseFile())
+                .cacheSizeKb(64 * 1024)
+                // Cada commit se escribe en disco antes de volver: el outbox, las marcas de
+                // entregado del relay y el checkpoint del diario diferido dependen de que una
+                // transacción confirmada no se pierda si el proceso cae (H2 retrasa 500 ms por defecto)
+                .writeDelayMillis(0)
+                .compactOnStartup(true)
+                .build();
+    }
+
+    // Las facturas se guardan en disco y sobreviven a un reinicio
+    private static Path databaseFile() {
+        String file = System.getProperty(DATABASE_FILE_PROPERTY);
+        return file != null ? Paths.get(file)
+                : Paths.get(System.getProperty("user.home"), ".uapa-invoices", "invoices");
+    }
+
+    private static Path eventJournalDir() {
+        String dir = System.getProperty(EVENT_JOURNAL_DIR_PROPERTY);
+        // Junto a la base de datos: el diario debe sobrevivir a la limpieza de temporales
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".uapa-invoices", "events");
+    }
+
+    // El log de la vista solo muestra las últimas líneas: no hace falta reproducir el diario entero
+    private static long logReplayOffset(InvoiceEventJournal journal) {
+        return Math.max(journal.getFirstOffset(), journal.getNextOffset() - LOG_REPLAY_EVENTS);
+    }
+
+    // Si el diario no se puede abrir (por ejemplo, otra instancia lo usa) se sigue sin él
+    private static JournalingInvoiceEventPublisher openJournal(SimpleInvoiceEventPublisher live) {
+        try {
+            InvoiceEventJournal journal = new InvoiceEventJournal(eventJournalDir(), EventJournalConfig.defaults());
+            return new JournalingInvoiceEventPublisher(journal, live);
+        } catch (IllegalStateException | UncheckedIOException e) {
+            System.err.println("[Main] Diario de eventos no disponible: " + e.getMessage());
+            return null;
+        }
+    }
 }
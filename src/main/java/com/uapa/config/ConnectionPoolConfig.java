@@ -0,0 +1,32 @@
+package com.uapa.config;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ConnectionPoolConfig {
+    // Número máximo de conexiones físicas (prestadas + ociosas)
+    @Builder.Default
+    int maxSize = 10;
+    // Tiempo máximo que una conexión puede permanecer ociosa antes de cerrarse
+    @Builder.Default
+    Duration idleTimeout = Duration.ofMinutes(5);
+    // Frecuencia con la que se revisan las conexiones ociosas
+    @Builder.Default
+    Duration evictionInterval = Duration.ofSeconds(30);
+    // Tiempo máximo de espera para obtener una conexión del pool
+    @Builder.Default
+    Duration borrowTimeout = Duration.ofSeconds(5);
+    // Validar la conexión (Connection.isValid) antes de entregarla
+    @Builder.Default
+    boolean validateOnBorrow = true;
+    @Builder.Default
+    int validationTimeoutSeconds = 2;
+
+    public static ConnectionPoolConfig defaults() {
+        return ConnectionPoolConfig.builder().build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.uapa.config;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ConnectionPoolStats {
+    int active;
+    int idle;
+    int waiting;
+    long borrowCount;
+    long timeoutCount;
+    long totalWaitNanos;
+    long maxWaitNanos;
+
+    public int getTotal() {
+        return active + idle;
+    }
+
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+}
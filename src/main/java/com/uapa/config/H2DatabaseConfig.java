@@ -0,0 +1,50 @@
+package com.uapa.config;
+
+import java.nio.file.Path;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class H2DatabaseConfig {
+    public enum Mode {
+        // Base de datos en memoria: se pierde al cerrar la aplicación (tests)
+        MEMORY,
+        // Base de datos embebida en un fichero .mv.db
+        FILE
+    }
+
+    @Builder.Default
+    Mode mode = Mode.MEMORY;
+    // Nombre de la base de datos en memoria
+    @Builder.Default
+    String memoryName = "testdb";
+    // Ruta del fichero sin la extensión .mv.db; obligatoria en modo FILE
+    Path file;
+    @Builder.Default
+    String user = "sa";
+    @Builder.Default
+    String password = "";
+    // Caché de páginas de MVStore en KB (CACHE_SIZE); null usa el valor de H2
+    Integer cacheSizeKb;
+    // Retraso máximo antes de escribir los cambios confirmados en disco (WRITE_DELAY);
+    // null usa el valor de H2, 500 ms. Con un retraso, una caída pierde commits ya confirmados
+    Integer writeDelayMillis;
+    // Tamaño a partir del cual MVStore divide una página (PAGE_SIZE)
+    Integer pageSize;
+    // Compresión de las páginas en disco (COMPRESS)
+    @Builder.Default
+    boolean compress = false;
+    // Compactar el fichero al arrancar, antes de abrir la primera conexión de la aplicación
+    @Builder.Default
+    boolean compactOnStartup = false;
+
+    public static H2DatabaseConfig defaults() {
+        return H2DatabaseConfig.builder().build();
+    }
+
+    public static H2DatabaseConfig file(Path file) {
+        return H2DatabaseConfig.builder().mode(Mode.FILE).file(file).build();
+    }
+}
@@ -1,35 +1,116 @@
 package com.uapa.config;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.concurrent.CompletableFuture;
 
 public class H2DatabaseConnector implements DatabaseConnector {
+    private final H2DatabaseConfig config;
+    private final String url;
+    private final CompletableFuture<Void> schemaReady;
+
     public H2DatabaseConnector() {
+        this(H2DatabaseConfig.defaults());
+    }
+
+    public H2DatabaseConnector(H2DatabaseConfig config) {
+        this.config = config;
+        this.url = buildUrl(config);
         try {
             Class.forName("org.h2.Driver");
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("H2 Driver not found", e);
         }
+        if (config.getMode() == H2DatabaseConfig.Mode.FILE && config.isCompactOnStartup()) {
+            compact();
+        }
+        // El esquema se migra una sola vez al arrancar, no en cada conexión
+        schemaReady = initializeSchema();
     }
 
     @Override
     public Connection getConnection() {
         try {
-            Connection conn = DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", "");
-            // Crear tabla si no existe (responsabilidad de configuración inicial)
-            Statement stmt = conn.createStatement();
-            stmt.execute("CREATE TABLE IF NOT EXISTS invoices ("
-                    + "id VARCHAR(255) PRIMARY KEY, "
-                    + "date DATE, "
-                    + "total DOUBLE)");
-            // Crear tabla invoice_items si no existe
-            stmt.execute("CREATE TABLE IF NOT EXISTS invoice_items ("
-                    + "invoice_id VARCHAR(255), "
-                    + "product VARCHAR(255), "
-                    + "quantity INT, "
-                    + "price DOUBLE)");
-            return conn;
+            return DriverManager.getConnection(url, config.getUser(), config.getPassword());
         } catch (SQLException e) {
             throw new RuntimeException("Error connecting to H2", e);
         }
     }
-}
\ No newline at end of file
+
+    public String getUrl() {
+        return url;
+    }
+
+    // Se completa cuando terminan también las migraciones online; las normales ya
+    // están aplicadas al salir del constructor
+    public CompletableFuture<Void> getSchemaReady() {
+        return schemaReady;
+    }
+
+    static String buildUrl(H2DatabaseConfig config) {
+        StringBuilder url = new StringBuilder("jdbc:h2:");
+        if (config.getMode() == H2DatabaseConfig.Mode.FILE) {
+            if (config.getFile() == null) {
+                throw new IllegalArgumentException("A file path is required in FILE mode");
+            }
+            // La base de datos se cierra al cerrar la última conexión; no con el hook de H2,
+            // que podría cerrarla antes de que la aplicación guarde lo que tiene pendiente
+            url.append("file:").append(config.getFile().toAbsolutePath()).append(";DB_CLOSE_ON_EXIT=FALSE");
+        } else {
+            url.append("mem:").append(config.getMemoryName()).append(";DB_CLOSE_DELAY=-1");
+        }
+        appendSetting(url, "CACHE_SIZE", config.getCacheSizeKb());
+        appendSetting(url, "WRITE_DELAY", config.getWriteDelayMillis());
+        appendSetting(url, "PAGE_SIZE", config.getPageSize());
+        if (config.isCompress()) {
+            url.append(";COMPRESS=TRUE");
+        }
+        return url.toString();
+    }
+
+    private static void appendSetting(StringBuilder url, String name, Integer value) {
+        if (value == null) {
+            return;
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+        url.append(';').append(name).append('=').append(value);
+    }
+
+    // SHUTDOWN COMPACT reescribe el fichero con solo las páginas vivas y cierra la base de datos
+    private void compact() {
+        Path dataFile = dataFile();
+        if (!Files.exists(dataFile)) {
+            return;
+        }
+        long before = sizeOf(dataFile);
+        try (Connection conn = getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN COMPACT");
+        } catch (SQLException e) {
+            throw new RuntimeException("Error compacting H2 database", e);
+        }
+        System.out.println("[Database] Base de datos compactada: " + before + " -> " + sizeOf(dataFile) + " bytes");
+    }
+
+    private Path dataFile() {
+        Path file = config.getFile().toAbsolutePath();
+        return file.resolveSibling(file.getFileName() + ".mv.db");
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private CompletableFuture<Void> initializeSchema() {
+        // Las migraciones aplicadas quedan registradas; en cada arranque solo se aplican las nuevas
+        return new SchemaMigrator(this, SchemaMigrations.all()).migrate();
+    }
+}
@@ -0,0 +1,233 @@
+package com.uapa.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones sobre cualquier {@link DatabaseConnector}.
+ * Las conexiones entregadas devuelven la conexión física al pool al
+ * invocar {@code close()}.
+ */
+public class PooledDatabaseConnector implements DatabaseConnector, AutoCloseable {
+    private final DatabaseConnector source;
+    private final ConnectionPoolConfig config;
+    // Un permiso por conexión prestada; limita el tamaño total del pool
+    private final Semaphore permits;
+    // LIFO: se reutiliza primero la conexión usada más recientemente
+    private final Deque<PooledEntry> idle = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public PooledDatabaseConnector(DatabaseConnector source) {
+        this(source, ConnectionPoolConfig.defaults());
+    }
+
+    public PooledDatabaseConnector(DatabaseConnector source, ConnectionPoolConfig config) {
+        if (config.getMaxSize() < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.source = source;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getEvictionInterval().toMillis();
+        evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                timeoutCount.increment();
+                throw new RuntimeException("Timed out waiting for a pooled connection after "
+                        + config.getBorrowTimeout().toMillis() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a pooled connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = new PooledEntry(source.getConnection());
+            }
+            active.incrementAndGet();
+            return wrap(entry);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public ConnectionPoolStats getStats() {
+        return ConnectionPoolStats.builder()
+                .active(active.get())
+                .idle(idle.size())
+                .waiting(permits.getQueueLength())
+                .borrowCount(borrowCount.sum())
+                .timeoutCount(timeoutCount.sum())
+                .totalWaitNanos(totalWaitNanos.sum())
+                .maxWaitNanos(maxWaitNanos.get())
+                .build();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.connection);
+        }
+    }
+
+    // Cierra las conexiones que superan el tiempo máximo de inactividad
+    void evictIdle() {
+        long limit = System.nanoTime() - config.getIdleTimeout().toNanos();
+        Iterator<PooledEntry> it = idle.iterator();
+        while (it.hasNext()) {
+            PooledEntry entry = it.next();
+            if (entry.lastUsedNanos - limit < 0 && idle.remove(entry)) {
+                closeQuietly(entry.connection);
+            }
+        }
+    }
+
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (!config.isValidateOnBorrow() || isValid(entry.connection)) {
+                return entry;
+            }
+            closeQuietly(entry.connection);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        active.decrementAndGet();
+        try {
+            if (closed || entry.connection.isClosed()) {
+                closeQuietly(entry.connection);
+                return;
+            }
+            // Dejar la conexión en su estado por defecto para el siguiente uso
+            if (!entry.connection.getAutoCommit()) {
+                entry.connection.rollback();
+                entry.connection.setAutoCommit(true);
+            }
+            entry.lastUsedNanos = System.nanoTime();
+            idle.offerFirst(entry);
+        } catch (SQLException e) {
+            closeQuietly(entry.connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection wrap(PooledEntry entry) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new BorrowedConnectionHandler(entry));
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // La conexión se descarta de todos modos
+        }
+    }
+
+    private static final class PooledEntry {
+        private final Connection connection;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        private PooledEntry(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final class BorrowedConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned;
+
+        private BorrowedConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + entry.connection + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(entry.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
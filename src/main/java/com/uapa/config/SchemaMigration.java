@@ -0,0 +1,93 @@
+package com.uapa.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import lombok.Value;
+
+/**
+ * Script de migración con versión. Las sentencias se separan con ';' al final
+ * de línea y las líneas que empiezan por "--" son comentarios. Un script con
+ * la línea {@value #ONLINE_DIRECTIVE} se aplica en segundo plano, después de
+ * las migraciones normales, para que la aplicación no espere a que se
+ * construya un índice grande.
+ *
+ * El checksum es un CRC32 del script con los saltos de línea normalizados:
+ * si un script ya aplicado cambia, el arranque falla en lugar de dejar el
+ * esquema distinto del que describe el código.
+ */
+@Value
+public class SchemaMigration {
+    static final String ONLINE_DIRECTIVE = "-- migration: online";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    int version;
+    String description;
+    long checksum;
+    boolean online;
+    List<String> statements;
+
+    public static SchemaMigration of(int version, String description, String script) {
+        if (version < 1) {
+            throw new IllegalArgumentException("Migration version must be at least 1");
+        }
+        String normalized = script.replace("\r\n", "\n");
+        CRC32 crc = new CRC32();
+        crc.update(normalized.getBytes(StandardCharsets.UTF_8));
+
+        boolean online = false;
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : normalized.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("--")) {
+                online |= trimmed.equals(ONLINE_DIRECTIVE);
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                addStatement(statements, current);
+            }
+        }
+        addStatement(statements, current);
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("Migration V" + version + " has no statements");
+        }
+        return new SchemaMigration(version, description, crc.getValue(), online, List.copyOf(statements));
+    }
+
+    // Carga un script del classpath con nombre V<versión>__<descripción>.sql
+    public static SchemaMigration fromResource(String location, String fileName) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Migration file name must look like V1__description.sql: " + fileName);
+        }
+        String resource = location + "/" + fileName;
+        try (InputStream in = SchemaMigration.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new SchemaMigrationException("Migration script not found: " + resource);
+            }
+            String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return of(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), script);
+        } catch (IOException e) {
+            throw new SchemaMigrationException("Error reading migration script " + resource, e);
+        }
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).trim();
+        }
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,12 @@
+package com.uapa.config;
+
+// Error al aplicar o validar las migraciones del esquema
+public class SchemaMigrationException extends RuntimeException {
+    public SchemaMigrationException(String message) {
+        super(message);
+    }
+
+    public SchemaMigrationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
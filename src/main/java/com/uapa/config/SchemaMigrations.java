@@ -0,0 +1,23 @@
+package com.uapa.config;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Migraciones del esquema de facturas, en src/main/resources/db/migration
+public final class SchemaMigrations {
+    private static final String LOCATION = "db/migration";
+    // Para añadir una migración se crea el script y se añade aquí su nombre
+    private static final List<String> SCRIPTS = List.of(
+            "V1__create_invoice_tables.sql",
+            "V2__create_invoice_indexes.sql",
+            "V3__create_invoice_outbox.sql");
+
+    private SchemaMigrations() {
+    }
+
+    public static List<SchemaMigration> all() {
+        return SCRIPTS.stream()
+                .map(script -> SchemaMigration.fromResource(LOCATION, script))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+package com.uapa.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Aplica las migraciones pendientes en orden de versión y las registra en la
+ * tabla {@value #HISTORY_TABLE}. Cada migración se aplica una sola vez; las ya
+ * aplicadas se validan por checksum.
+ *
+ * H2 confirma cada sentencia DDL por separado, así que una migración que falla
+ * a medias no se deshace: los scripts usan IF NOT EXISTS para poder repetirse.
+ *
+ * Las migraciones online se aplican en un hilo aparte cuando las normales han
+ * terminado. Las lecturas siguen funcionando mientras se construye el índice
+ * (MVCC); las escrituras sobre la tabla esperan a que termine. Si fallan, no
+ * se registran y se reintentan en el siguiente arranque.
+ */
+public class SchemaMigrator {
+    static final String HISTORY_TABLE = "schema_history";
+    // Una migración online espera a las transacciones en curso en lugar de fallar enseguida
+    private static final int ONLINE_LOCK_TIMEOUT_MILLIS = 30_000;
+    private static final String DUPLICATE_KEY_STATE = "23505";
+
+    private final DatabaseConnector connector;
+    private final List<SchemaMigration> migrations;
+
+    public SchemaMigrator(DatabaseConnector connector, List<SchemaMigration> migrations) {
+        List<SchemaMigration> sorted = new ArrayList<>(migrations);
+        sorted.sort(Comparator.comparingInt(SchemaMigration::getVersion));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).getVersion() == sorted.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Duplicate migration version V" + sorted.get(i).getVersion());
+            }
+        }
+        this.connector = connector;
+        this.migrations = sorted;
+    }
+
+    /**
+     * Aplica las migraciones normales pendientes y devuelve un future que se
+     * completa cuando terminan las online (ya completado si no hay ninguna).
+     */
+    public CompletableFuture<Void> migrate() {
+        List<SchemaMigration> online = new ArrayList<>();
+        try (Connection connection = connector.getConnection()) {
+            createHistoryTable(connection);
+            Map<Integer, Long> applied = readHistory(connection);
+            for (SchemaMigration migration : migrations) {
+                if (applied.containsKey(migration.getVersion())) {
+                    continue;
+                }
+                if (migration.isOnline()) {
+                    online.add(migration);
+                } else {
+                    apply(connection, migration);
+                }
+            }
+        } catch (SQLException e) {
+            throw new SchemaMigrationException("Error migrating database schema", e);
+        }
+        if (online.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread worker = new Thread(() -> applyOnline(online, done), "schema-migrator-online");
+        worker.setDaemon(true);
+        worker.start();
+        return done;
+    }
+
+    private void applyOnline(List<SchemaMigration> online, CompletableFuture<Void> done) {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCK_TIMEOUT " + ONLINE_LOCK_TIMEOUT_MILLIS);
+            for (SchemaMigration migration : online) {
+                apply(connection, migration);
+            }
+            done.complete(null);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("[Database] Migración online fallida, se reintentará al arrancar: " + e);
+            done.completeExceptionally(e);
+        }
+    }
+
+    private static void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, "
+                    + "checksum BIGINT NOT NULL, "
+                    + "online BOOLEAN NOT NULL, "
+                    + "applied_at TIMESTAMP NOT NULL, "
+                    + "execution_millis BIGINT NOT NULL)");
+        }
+    }
+
+    private Map<Integer, Long> readHistory(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        for (SchemaMigration migration : migrations) {
+            Long checksum = applied.get(migration.getVersion());
+            if (checksum != null && checksum != migration.getChecksum()) {
+                throw new SchemaMigrationException("Checksum mismatch for applied migration V"
+                        + migration.getVersion() + " (" + migration.getDescription() + ")");
+            }
+        }
+        int latest = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+        for (int version : applied.keySet()) {
+            if (version > latest) {
+                System.err.println("[Database] La base de datos tiene la migración V" + version
+                        + ", que esta versión de la aplicación no conoce");
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection connection, SchemaMigration migration) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new SchemaMigrationException("Error applying migration V" + migration.getVersion()
+                    + " (" + migration.getDescription() + ")", e);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + HISTORY_TABLE
+                + " (version, description, checksum, online, applied_at, execution_millis) VALUES (?, ?, ?, ?, ?, ?)")) {
+            insert.setInt(1, migration.getVersion());
+            insert.setString(2, migration.getDescription());
+            insert.setLong(3, migration.getChecksum());
+            insert.setBoolean(4, migration.isOnline());
+            insert.setTimestamp(5, Timestamp.from(Instant.now()));
+            insert.setLong(6, elapsedMillis);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            // Otro arranque concurrente sobre la misma base de datos ya la registró
+            if (!DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+        System.out.println("[Database] Migración V" + migration.getVersion() + " (" + migration.getDescription()
+                + ") aplicada en " + elapsedMillis + " ms");
+    }
+}
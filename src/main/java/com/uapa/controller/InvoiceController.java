@@ -1,10 +1,15 @@
 package com.uapa.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import com.uapa.factory.InvoiceFactory;
 import com.uapa.model.Invoice;
 import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
 import com.uapa.service.InvoiceService;
+import com.uapa.service.InvoicePriority;
 
 public class InvoiceController {
     private final InvoiceService service;
@@ -22,10 +27,34 @@ public class InvoiceController {
     public void generateRealInvoice(List<InvoiceItem> items) {
         Invoice invoice = InvoiceFactory.createInvoice(items);
         System.out.println("[Controller] Generando factura real: " + invoice.getId());
-        service.createInvoice(invoice);
+        // El usuario está esperando: la factura se adelanta a los trabajos en lote
+        service.createInvoice(invoice, InvoicePriority.INTERACTIVE);
+    }
+
+    // Variante asíncrona: permite encadenar trabajo o medir la latencia de extremo a extremo
+    public CompletableFuture<Invoice> generateRealInvoiceAsync(List<InvoiceItem> items) {
+        Invoice invoice = InvoiceFactory.createInvoice(items);
+        System.out.println("[Controller] Generando factura real: " + invoice.getId());
+        return service.createInvoiceAsync(invoice, InvoicePriority.INTERACTIVE);
     }
 
     public List<Invoice> getAllInvoices() {
         return service.getAllInvoices();
     }
+
+    public InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        return service.findPage(afterKey, limit);
+    }
+
+    public long countInvoiceLines() {
+        return service.countInvoiceLines();
+    }
+
+    public List<InvoiceLine> findInvoiceLines(long offset, int limit) {
+        return service.findInvoiceLines(offset, limit);
+    }
+
+    public List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit) {
+        return service.findInvoiceLinesAfter(last, limit);
+    }
 }
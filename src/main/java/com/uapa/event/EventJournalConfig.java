@@ -0,0 +1,27 @@
+package com.uapa.event;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class EventJournalConfig {
+    // Tamaño de cada fichero de segmento; al llenarse se abre uno nuevo
+    @Builder.Default
+    int segmentBytes = 16 * 1024 * 1024;
+    // Los segmentos cerrados cuyo último evento sea más antiguo se borran
+    @Builder.Default
+    Duration retention = Duration.ofDays(7);
+    // Tamaño máximo del diario; al superarlo se borran los segmentos más antiguos
+    @Builder.Default
+    long maxTotalBytes = 1024L * 1024 * 1024;
+    // Fuerza cada evento a disco; si no, se fuerza al cambiar de segmento y al cerrar
+    @Builder.Default
+    boolean syncOnAppend = false;
+
+    public static EventJournalConfig defaults() {
+        return EventJournalConfig.builder().build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.uapa.event;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class EventPublisherConfig {
+    public enum DispatchMode {
+        // Los observadores se ejecutan en el hilo que publica el evento
+        SYNC,
+        // Cada observador tiene su propia cola (ring buffer) y su propio hilo
+        ASYNC,
+        // Como ASYNC, pero los eventos se entregan en lotes con updateBatch()
+        BATCHED
+    }
+
+    public enum WaitStrategy {
+        // El consumidor se bloquea hasta que se publique un evento; no gasta CPU
+        BLOCKING,
+        // El consumidor cede el procesador entre comprobaciones
+        YIELDING,
+        // El consumidor comprueba continuamente; menor latencia, un núcleo ocupado
+        BUSY_SPIN
+    }
+
+    @Builder.Default
+    DispatchMode mode = DispatchMode.SYNC;
+    @Builder.Default
+    WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+    // Modo BATCHED: eventos por lote y espera máxima para completar un lote
+    @Builder.Default
+    int maxBatchSize = 64;
+    @Builder.Default
+    Duration maxBatchDelay = Duration.ofMillis(10);
+    // Tiempo máximo que close() espera a que los observadores consuman los eventos pendientes
+    @Builder.Default
+    Duration shutdownTimeout = Duration.ofSeconds(5);
+
+    public static EventPublisherConfig defaults() {
+        return EventPublisherConfig.builder().build();
+    }
+
+    public static EventPublisherConfig async() {
+        return EventPublisherConfig.builder().mode(DispatchMode.ASYNC).build();
+    }
+
+    public static EventPublisherConfig batched() {
+        return EventPublisherConfig.builder().mode(DispatchMode.BATCHED).build();
+    }
+}
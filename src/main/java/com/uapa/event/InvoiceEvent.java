@@ -0,0 +1,36 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Evento del bus de facturas. Los eventos de una sola factura llevan
+ * {@link #getInvoice()}; los de lote llevan {@link #getInvoices()}.
+ */
+@Value
+public class InvoiceEvent {
+    InvoiceEventType type;
+    Invoice invoice;
+    List<Invoice> invoices;
+    // Solo en eventos FAILED
+    Throwable cause;
+
+    public static InvoiceEvent saved(Invoice invoice) {
+        return new InvoiceEvent(InvoiceEventType.SAVED, invoice, List.of(invoice), null);
+    }
+
+    public static InvoiceEvent failed(Invoice invoice, Throwable cause) {
+        return new InvoiceEvent(InvoiceEventType.FAILED, invoice, List.of(invoice), cause);
+    }
+
+    public static InvoiceEvent batchImported(List<Invoice> invoices) {
+        return new InvoiceEvent(InvoiceEventType.BATCH_IMPORTED, null, List.copyOf(invoices), null);
+    }
+
+    public boolean isBatch() {
+        return invoice == null;
+    }
+}
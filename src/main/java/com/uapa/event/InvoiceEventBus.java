@@ -0,0 +1,191 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import com.uapa.observer.InvoiceObserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bus de eventos de factura con suscripciones filtradas por tipo y por
+ * condiciones sobre la factura.
+ *
+ * Cada vez que cambian las suscripciones se compila una tabla de despacho:
+ * por tipo de evento, los límites de total de todos los filtros parten la
+ * recta en intervalos y cada intervalo guarda ya calculada la lista de
+ * suscripciones que lo aceptan. Publicar un evento es una búsqueda binaria
+ * del total más el recorrido de las suscripciones que coinciden, sin
+ * evaluar las que no.
+ *
+ * Implementa {@link InvoiceEventPublisher}, así que puede usarse en cualquier
+ * sitio que acepte un publicador.
+ */
+public class InvoiceEventBus implements InvoiceEventPublisher {
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Map<InvoiceEventType, DispatchTable> tables = compile(List.of());
+
+    public Subscription subscribe(InvoiceEventFilter filter, InvoiceEventListener listener) {
+        Subscription subscription = new Subscription(filter, listener);
+        synchronized (this) {
+            subscriptions.add(subscription);
+            tables = compile(subscriptions);
+        }
+        return subscription;
+    }
+
+    // Adaptador para observadores existentes: reciben las facturas del evento
+    public Subscription subscribeObserver(InvoiceEventFilter filter, InvoiceObserver observer) {
+        return subscribe(filter, event -> {
+            if (event.isBatch()) {
+                observer.updateBatch(event.getInvoices());
+            } else {
+                observer.update(event.getInvoice());
+            }
+        });
+    }
+
+    public synchronized void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            tables = compile(subscriptions);
+        }
+    }
+
+    @Override
+    public void publishInvoiceCreated(Invoice invoice) {
+        publishEvent(InvoiceEvent.saved(invoice));
+    }
+
+    @Override
+    public void publishEvent(InvoiceEvent event) {
+        DispatchTable table = tables.get(event.getType());
+        if (!event.isBatch()) {
+            Invoice invoice = event.getInvoice();
+            for (Subscription subscription : table.candidates(invoice)) {
+                if (subscription.filter.acceptsRest(invoice)) {
+                    deliver(subscription, event);
+                }
+            }
+            return;
+        }
+        // En un lote cada suscripción recibe solo las facturas que acepta
+        Map<Subscription, List<Invoice>> routed = new LinkedHashMap<>();
+        for (Invoice invoice : event.getInvoices()) {
+            for (Subscription subscription : table.candidates(invoice)) {
+                if (subscription.filter.acceptsRest(invoice)) {
+                    routed.computeIfAbsent(subscription, key -> new ArrayList<>()).add(invoice);
+                }
+            }
+        }
+        for (Map.Entry<Subscription, List<Invoice>> entry : routed.entrySet()) {
+            List<Invoice> accepted = entry.getValue();
+            deliver(entry.getKey(), accepted.size() == event.getInvoices().size()
+                    ? event
+                    : InvoiceEvent.batchImported(accepted));
+        }
+    }
+
+    private static void deliver(Subscription subscription, InvoiceEvent event) {
+        try {
+            subscription.listener.onEvent(event);
+        } catch (RuntimeException e) {
+            // Un suscriptor que falla no debe impedir la entrega a los demás
+            System.err.println("[Event] Error en suscriptor " + subscription.listener + ": " + e);
+        }
+    }
+
+    private static Map<InvoiceEventType, DispatchTable> compile(List<Subscription> subscriptions) {
+        Map<InvoiceEventType, DispatchTable> compiled = new EnumMap<>(InvoiceEventType.class);
+        for (InvoiceEventType type : InvoiceEventType.values()) {
+            List<Subscription> forType = new ArrayList<>();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.filter.acceptsType(type)) {
+                    forType.add(subscription);
+                }
+            }
+            compiled.put(type, new DispatchTable(forType));
+        }
+        return compiled;
+    }
+
+    /**
+     * Tabla de un tipo de evento. Con los límites ordenados b0 < b1 < ... los
+     * huecos son (-inf, b0), [b0], (b0, b1), [b1], ..., (bn, +inf); como todo
+     * límite de un filtro es uno de los bi, un filtro acepta o rechaza el
+     * hueco entero.
+     */
+    private static final class DispatchTable {
+        private static final Subscription[] NONE = new Subscription[0];
+
+        private final double[] boundaries;
+        private final Subscription[][] slots;
+
+        private DispatchTable(List<Subscription> subscriptions) {
+            TreeSet<Double> points = new TreeSet<>();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.filter.getMinTotal() != null) {
+                    points.add(subscription.filter.getMinTotal());
+                }
+                if (subscription.filter.getMaxTotal() != null) {
+                    points.add(subscription.filter.getMaxTotal());
+                }
+            }
+            boundaries = points.stream().mapToDouble(Double::doubleValue).toArray();
+            slots = new Subscription[boundaries.length * 2 + 1][];
+            for (int slot = 0; slot < slots.length; slot++) {
+                double sample = sample(slot);
+                List<Subscription> accepted = new ArrayList<>();
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.filter.acceptsTotal(sample)) {
+                        accepted.add(subscription);
+                    }
+                }
+                slots[slot] = accepted.isEmpty() ? NONE : accepted.toArray(NONE);
+            }
+        }
+
+        // Un valor cualquiera dentro del hueco
+        private double sample(int slot) {
+            if (boundaries.length == 0) {
+                return 0.0;
+            }
+            if (slot % 2 == 1) {
+                return boundaries[slot / 2];
+            }
+            int upper = slot / 2;
+            if (upper == 0) {
+                return Math.nextDown(boundaries[0]);
+            }
+            if (upper == boundaries.length) {
+                return Math.nextUp(boundaries[boundaries.length - 1]);
+            }
+            return (boundaries[upper - 1] + boundaries[upper]) / 2.0;
+        }
+
+        // Suscripciones que aceptan el tipo y el total; el array es el de la tabla,
+        // no una copia, así que publicar no crea objetos. No se debe modificar.
+        private Subscription[] candidates(Invoice invoice) {
+            int index = Arrays.binarySearch(boundaries, invoice.getTotal());
+            return slots[index >= 0 ? index * 2 + 1 : (-index - 1) * 2];
+        }
+    }
+
+    public static final class Subscription {
+        private final InvoiceEventFilter filter;
+        private final InvoiceEventListener listener;
+
+        private Subscription(InvoiceEventFilter filter, InvoiceEventListener listener) {
+            this.filter = filter;
+            this.listener = listener;
+        }
+
+        public InvoiceEventFilter getFilter() {
+            return filter;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/**
+ * Condiciones de una suscripción al {@link InvoiceEventBus}. Los tipos y el
+ * rango de totales se resuelven al compilar la tabla de despacho; el rango
+ * de fechas y {@code where} se comprueban solo en las suscripciones que ya
+ * pasaron esos filtros.
+ *
+ * Ejemplo, facturas guardadas con total mayor que 1000:
+ * {@code InvoiceEventFilter.builder().type(SAVED).minTotal(1000.0).minTotalInclusive(false).build()}
+ */
+@Value
+@Builder
+public class InvoiceEventFilter {
+    // Vacío: todos los tipos
+    @Singular
+    Set<InvoiceEventType> types;
+    // Límites opcionales del total de la factura
+    Double minTotal;
+    @Builder.Default
+    boolean minTotalInclusive = true;
+    Double maxTotal;
+    @Builder.Default
+    boolean maxTotalInclusive = true;
+    // Límites opcionales de la fecha, ambos incluidos
+    LocalDate fromDate;
+    LocalDate toDate;
+    // Condición adicional libre; se evalúa la última
+    Predicate<Invoice> where;
+
+    public static InvoiceEventFilter all() {
+        return InvoiceEventFilter.builder().build();
+    }
+
+    public static InvoiceEventFilter of(InvoiceEventType first, InvoiceEventType... rest) {
+        return InvoiceEventFilter.builder().types(EnumSet.of(first, rest)).build();
+    }
+
+    boolean acceptsType(InvoiceEventType type) {
+        return types.isEmpty() || types.contains(type);
+    }
+
+    boolean acceptsTotal(double total) {
+        if (minTotal != null && (minTotalInclusive ? total < minTotal : total <= minTotal)) {
+            return false;
+        }
+        return maxTotal == null || (maxTotalInclusive ? total <= maxTotal : total < maxTotal);
+    }
+
+    // Comprobaciones que no resuelve la tabla de despacho
+    boolean acceptsRest(Invoice invoice) {
+        LocalDate date = invoice.getDate();
+        if (fromDate != null && (date == null || date.isBefore(fromDate))) {
+            return false;
+        }
+        if (toDate != null && (date == null || date.isAfter(toDate))) {
+            return false;
+        }
+        return where == null || where.test(invoice);
+    }
+}
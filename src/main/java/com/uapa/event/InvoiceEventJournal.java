@@ -0,0 +1,413 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceCodec;
+import com.uapa.observer.InvoiceObserver;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de eventos de factura: solo se añaden registros al final y cada uno
+ * recibe un offset creciente. Los registros se guardan en segmentos de tamaño
+ * fijo proyectados en memoria; al llenarse uno se abre el siguiente y los
+ * segmentos antiguos se borran según la retención configurada.
+ *
+ * Formato de cada registro: longitud (int), CRC32 (int), marca de tiempo
+ * (long) y la factura serializada. La longitud se escribe la última, de modo
+ * que al reabrir el diario un registro a medio escribir se descarta.
+ *
+ * Las lecturas no bloquean a las escrituras: los registros por debajo de
+ * {@link #getNextOffset()} ya no cambian.
+ */
+public class InvoiceEventJournal implements AutoCloseable {
+    private static final int HEADER_BYTES = 16;
+    private static final String SEGMENT_SUFFIX = ".log";
+    // Los eventos reproducidos se entregan con updateBatch en lotes de este tamaño
+    private static final int REPLAY_BATCH_SIZE = 256;
+    // Unsafe.invokeCleaner libera una proyección sin esperar al GC (jdk.unsupported)
+    private static final Object UNSAFE = loadUnsafe();
+    private static final Method INVOKE_CLEANER = loadInvokeCleaner(UNSAFE);
+
+    private final Path directory;
+    private final EventJournalConfig config;
+    private final Clock clock;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    // Offset que recibirá el siguiente evento; su escritura publica el registro
+    private volatile long nextOffset;
+    private boolean closed;
+
+    public InvoiceEventJournal(Path directory, EventJournalConfig config) {
+        this(directory, config, Clock.systemUTC());
+    }
+
+    InvoiceEventJournal(Path directory, EventJournalConfig config, Clock clock) {
+        if (config.getSegmentBytes() <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes must be larger than " + HEADER_BYTES);
+        }
+        this.directory = directory;
+        this.config = config;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+            // Un solo proceso puede escribir en el diario
+            lockChannel = FileChannel.open(directory.resolve("journal.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = tryLock(lockChannel);
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("Event journal is already in use: " + directory);
+            }
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening event journal " + directory, e);
+        }
+        System.out.println("[Journal] Diario abierto en " + directory + " (offsets "
+                + getFirstOffset() + " a " + nextOffset + ")");
+    }
+
+    /**
+     * Añade el evento al final del diario y devuelve su offset. Las llamadas
+     * concurrentes se serializan.
+     */
+    public synchronized long append(Invoice invoice) {
+        if (closed) {
+            throw new IllegalStateException("Event journal is closed");
+        }
+        byte[] payload = encode(invoice);
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > config.getSegmentBytes()) {
+            throw new IllegalArgumentException("Invoice " + invoice.getId() + " does not fit in a journal segment");
+        }
+        Segment active = segments.get(segments.size() - 1);
+        if (active.writePosition + recordBytes > active.buffer.capacity()) {
+            active = roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        long timestamp = clock.millis();
+        int position = active.writePosition;
+        ByteBuffer buffer = active.buffer;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putLong(position + 8, timestamp);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADER_BYTES);
+        view.put(payload);
+        buffer.putInt(position, payload.length);
+        if (config.isSyncOnAppend()) {
+            active.buffer.force();
+        }
+        active.addRecord(position, timestamp);
+        active.writePosition = position + recordBytes;
+        long offset = nextOffset;
+        nextOffset = offset + 1;
+        return offset;
+    }
+
+    /**
+     * Entrega al observador, en orden, los eventos desde {@code fromOffset}
+     * hasta el final actual del diario. Si ese offset ya se borró por
+     * retención se empieza por el más antiguo que se conserve. Devuelve el
+     * offset siguiente al último entregado.
+     */
+    public long replay(long fromOffset, InvoiceObserver observer) {
+        long end = nextOffset;
+        long offset = Math.max(fromOffset, getFirstOffset());
+        List<Invoice> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+        for (Segment segment : segments) {
+            if (offset >= end) {
+                break;
+            }
+            // Un registro roto en un segmento cerrado deja un hueco de offsets:
+            // el segmento termina ahí y se sigue por el siguiente
+            offset = Math.max(offset, segment.baseOffset);
+            long segmentEnd = segment.baseOffset + segment.recordCount;
+            if (offset >= segmentEnd) {
+                continue;
+            }
+            // Si la retención ya lo borró, su proyección puede haberse liberado
+            if (!segment.retain()) {
+                continue;
+            }
+            try {
+                // Lectura secuencial sobre una vista propia del buffer proyectado
+                ByteBuffer view = segment.buffer.duplicate();
+                int[] positions = segment.positions;
+                for (; offset < segmentEnd && offset < end; offset++) {
+                    int position = positions[(int) (offset - segment.baseOffset)];
+                    int length = view.getInt(position);
+                    byte[] payload = new byte[length];
+                    view.position(position + HEADER_BYTES);
+                    view.get(payload);
+                    batch.add(decode(payload));
+                    if (batch.size() == REPLAY_BATCH_SIZE) {
+                        observer.updateBatch(batch);
+                        batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+                    }
+                }
+            } finally {
+                segment.release();
+            }
+        }
+        if (!batch.isEmpty()) {
+            observer.updateBatch(batch);
+        }
+        return offset;
+    }
+
+    // Offset del evento más antiguo que se conserva
+    public long getFirstOffset() {
+        return segments.isEmpty() ? nextOffset : segments.get(0).baseOffset;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getSizeBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.buffer.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Borra los segmentos cerrados que superan la retención por tiempo o por
+     * tamaño. El segmento activo nunca se borra.
+     */
+    public synchronized void applyRetention() {
+        long cutoff = clock.millis() - config.getRetention().toMillis();
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            boolean expired = oldest.lastTimestamp < cutoff;
+            boolean oversized = getSizeBytes() > config.getMaxTotalBytes();
+            if (!expired && !oversized) {
+                return;
+            }
+            segments.remove(0);
+            try {
+                // La proyección se libera cuando termine el último lector en curso
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                System.err.println("[Journal] No se pudo borrar " + oldest.path + ": " + e);
+            }
+            oldest.release();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.get(segments.size() - 1).buffer.force();
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error closing event journal " + directory, e);
+        }
+    }
+
+    private Segment roll() {
+        Segment previous = segments.get(segments.size() - 1);
+        previous.buffer.force();
+        Segment next = openSegment(nextOffset);
+        segments.add(next);
+        applyRetention();
+        return next;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = openSegment(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            scan(segment);
+            if (!segments.isEmpty() && segment.baseOffset > nextOffset) {
+                System.out.println("[Journal] Eventos " + nextOffset + " a " + (segment.baseOffset - 1)
+                        + " perdidos por un registro incompleto");
+            }
+            segments.add(segment);
+            nextOffset = segment.baseOffset + segment.recordCount;
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0));
+        }
+        applyRetention();
+    }
+
+    // Reconstruye el índice del segmento y descarta un posible registro incompleto
+    private void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        ByteBuffer view = buffer.duplicate();
+        int capacity = buffer.capacity();
+        int position = 0;
+        while (position + HEADER_BYTES <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            view.position(position + HEADER_BYTES);
+            view.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            segment.addRecord(position, buffer.getLong(position + 8));
+            position += HEADER_BYTES + length;
+        }
+        segment.writePosition = position;
+        if (position + 4 <= capacity && buffer.getInt(position) != 0) {
+            System.out.println("[Journal] Registro incompleto descartado en " + segment.path);
+            for (int i = position; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    private Segment openSegment(long baseOffset) {
+        Path path = directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // Solo se dimensionan los segmentos nuevos: uno existente se proyecta entero
+            // aunque segmentBytes haya bajado, para no truncar sus registros
+            long length = file.length();
+            if (length < config.getSegmentBytes()) {
+                length = config.getSegmentBytes();
+                file.setLength(length);
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new Segment(baseOffset, path, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening journal segment " + path, e);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Otro diario de este mismo proceso ya tiene el directorio
+            return null;
+        }
+    }
+
+    static byte[] encode(Invoice invoice) {
+        return InvoiceCodec.encode(invoice);
+    }
+
+    static Invoice decode(byte[] payload) {
+        return InvoiceCodec.decode(payload);
+    }
+
+    private static final class Segment {
+        private final long baseOffset;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        // Posición de cada registro; se publica antes que nextOffset
+        private volatile int[] positions = new int[64];
+        private volatile int recordCount;
+        private int writePosition;
+        private long lastTimestamp;
+        // Una referencia del diario más una por cada lectura en curso
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Segment(long baseOffset, Path path, MappedByteBuffer buffer) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        private void addRecord(int position, long timestamp) {
+            int[] current = positions;
+            if (recordCount == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[recordCount] = position;
+            positions = current;
+            recordCount++;
+            lastTimestamp = timestamp;
+        }
+
+        private boolean retain() {
+            int current;
+            while ((current = references.get()) > 0) {
+                if (references.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                unmap(buffer);
+            }
+        }
+    }
+
+    // Sin unmap explícito la proyección de un segmento borrado dura hasta que el GC recoge el buffer
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("[Journal] No se pudo liberar un segmento proyectado: " + e);
+        }
+    }
+
+    private static Object loadUnsafe() {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Method loadInvokeCleaner(Object unsafe) {
+        try {
+            return unsafe == null ? null : unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.uapa.event;
+
+public interface InvoiceEventListener {
+    void onEvent(InvoiceEvent event);
+}
@@ -4,4 +4,12 @@ import com.uapa.model.Invoice;
 
 public interface InvoiceEventPublisher {
     void publishInvoiceCreated(Invoice invoice);
-}
\ No newline at end of file
+
+    // Publica un evento tipado. Los publicadores que solo conocen las facturas
+    // creadas reciben los SAVED por publishInvoiceCreated e ignoran el resto.
+    default void publishEvent(InvoiceEvent event) {
+        if (event.getType() == InvoiceEventType.SAVED) {
+            publishInvoiceCreated(event.getInvoice());
+        }
+    }
+}
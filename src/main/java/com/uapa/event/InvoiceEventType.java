@@ -0,0 +1,10 @@
+package com.uapa.event;
+
+public enum InvoiceEventType {
+    // La factura se guardó (equivale a publishInvoiceCreated)
+    SAVED,
+    // No se pudo guardar la factura
+    FAILED,
+    // Se importó un lote de facturas (InvoiceService.importInvoices); el evento lleva las guardadas
+    BATCH_IMPORTED
+}
@@ -0,0 +1,171 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ring buffer preasignado con un productor y un consumidor. Cada observador
+ * asíncrono tiene el suyo ({@link ObserverDispatcher}), así que uno lento no
+ * retiene los eventos de los demás. Publicar un evento solo escribe su
+ * referencia en una ranura existente, sin crear objetos.
+ *
+ * El consumidor vacía cada ranura al reclamarla, para que el ring no retenga
+ * facturas ya entregadas. Con la estrategia BLOCKING el productor solo toma
+ * el cerrojo para despertar al consumidor cuando este está esperando.
+ */
+final class InvoiceRingBuffer {
+    private final AtomicReferenceArray<Invoice> slots;
+    private final int mask;
+    private final EventPublisherConfig.WaitStrategy waitStrategy;
+    // Última secuencia publicada; solo la escribe el productor y su escritura
+    // volátil publica el contenido de la ranura
+    private final AtomicLong cursor = new AtomicLong(-1);
+    // Última secuencia reclamada por el consumidor. Con dropOldest() el productor
+    // también la avanza, por eso se reclama con CAS.
+    private final AtomicLong sequence = new AtomicLong(-1);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    // El consumidor se marca antes de volver a comprobar si hay eventos y de
+    // bloquearse: el productor que publica después lo ve y le despierta
+    private volatile boolean parked;
+    // Ranuras que se encontraron vacías al reclamarlas (ver poll())
+    private final AtomicLong lost = new AtomicLong();
+
+    InvoiceRingBuffer(int capacity, EventPublisherConfig.WaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("queueCapacity must be a power of two");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    // Lado del productor
+
+    boolean isFull() {
+        return cursor.get() + 1 - slots.length() > sequence.get();
+    }
+
+    // Solo si hay sitio (isFull() es false)
+    void publish(Invoice invoice) {
+        long next = cursor.get() + 1;
+        slots.set((int) next & mask, invoice);
+        cursor.set(next);
+        wakeConsumer();
+    }
+
+    // Descarta el evento pendiente más antiguo; false si el consumidor lo reclamó antes
+    boolean dropOldest() {
+        long claimed = sequence.get();
+        return claimed < cursor.get() && sequence.compareAndSet(claimed, claimed + 1);
+    }
+
+    // Espera breve mientras el ring está lleno
+    void awaitSpace() {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELDING:
+                Thread.yield();
+                break;
+            default:
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+    }
+
+    // Despierta al consumidor si está bloqueado; también tras cambiar el estado
+    // que comprueba la condición de awaitEvent
+    void wakeConsumer() {
+        if (!parked) {
+            return;
+        }
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lado del consumidor
+
+    // Reclama el siguiente evento, o null si no hay ninguno publicado
+    Invoice poll() {
+        while (true) {
+            long claimed = sequence.get();
+            long next = claimed + 1;
+            if (next > cursor.get()) {
+                return null;
+            }
+            int index = (int) next & mask;
+            Invoice invoice = slots.get(index);
+            // Se vacía antes de avanzar la secuencia: hasta entonces el productor no
+            // reutiliza la ranura. Con CAS, para no borrar lo que escriba el productor
+            // si acaba de descartar este evento (dropOldest) y ha dado la vuelta.
+            if (invoice != null) {
+                slots.compareAndSet(index, invoice, null);
+            }
+            if (sequence.compareAndSet(claimed, next)) {
+                if (invoice != null) {
+                    return invoice;
+                }
+                // Solo con dropOldest y el ring lleno, si se republica la misma factura
+                // justo en la ranura que el consumidor estaba vaciando
+                lost.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Espera a que haya un evento publicado o a que {@code ready} se cumpla. Con
+     * {@code timed} espera como mucho hasta {@code deadline} (System.nanoTime()).
+     * Las estrategias YIELDING y BUSY_SPIN solo ceden una vez: el llamador vuelve
+     * a comprobar.
+     */
+    void awaitEvent(BooleanSupplier ready, boolean timed, long deadline) throws InterruptedException {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                return;
+            case YIELDING:
+                Thread.yield();
+                return;
+            default:
+                lock.lock();
+                try {
+                    parked = true;
+                    while (cursor.get() <= sequence.get() && !ready.getAsBoolean()) {
+                        if (!timed) {
+                            published.await();
+                        } else {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                return;
+                            }
+                            published.awaitNanos(remaining);
+                        }
+                    }
+                } finally {
+                    parked = false;
+                    lock.unlock();
+                }
+        }
+    }
+
+    // Eventos publicados que el consumidor aún no ha reclamado
+    long size() {
+        return Math.max(0, cursor.get() - sequence.get());
+    }
+
+    long getLostCount() {
+        return lost.get();
+    }
+}
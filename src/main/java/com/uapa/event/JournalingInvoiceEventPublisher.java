@@ -0,0 +1,70 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import com.uapa.observer.InvoiceObserver;
+
+/**
+ * Publicador que guarda cada evento en el {@link InvoiceEventJournal} antes
+ * de entregarlo a los observadores en vivo. Un observador que se suscribe
+ * tarde puede pedir los eventos desde cualquier offset: primero se le
+ * entregan los del diario y después pasa a recibir los nuevos, sin huecos ni
+ * duplicados.
+ */
+public class JournalingInvoiceEventPublisher implements InvoiceEventPublisher, AutoCloseable {
+    private final InvoiceEventJournal journal;
+    private final SimpleInvoiceEventPublisher live;
+
+    public JournalingInvoiceEventPublisher(InvoiceEventJournal journal, SimpleInvoiceEventPublisher live) {
+        this.journal = journal;
+        this.live = live;
+    }
+
+    // El orden del diario y el de entrega en vivo es el mismo
+    @Override
+    public synchronized void publishInvoiceCreated(Invoice invoice) {
+        journal.append(invoice);
+        live.publishInvoiceCreated(invoice);
+    }
+
+    // El diario solo guarda facturas creadas; los demás eventos se reenvían sin guardar
+    @Override
+    public void publishEvent(InvoiceEvent event) {
+        if (event.getType() == InvoiceEventType.SAVED) {
+            publishInvoiceCreated(event.getInvoice());
+        } else {
+            live.publishEvent(event);
+        }
+    }
+
+    public void subscribe(InvoiceObserver observer, long fromOffset) {
+        subscribe(observer, fromOffset, ObserverConfig.defaults());
+    }
+
+    /**
+     * Entrega al observador los eventos guardados desde {@code fromOffset} y
+     * lo registra para los siguientes. La mayor parte de la reproducción se
+     * hace sin bloquear a los publicadores; solo los eventos que llegan
+     * mientras tanto se entregan con la publicación detenida.
+     */
+    public void subscribe(InvoiceObserver observer, long fromOffset, ObserverConfig observerConfig) {
+        long next = journal.replay(fromOffset, observer);
+        synchronized (this) {
+            journal.replay(next, observer);
+            live.registerObserver(observer, observerConfig);
+        }
+    }
+
+    public void unsubscribe(InvoiceObserver observer) {
+        live.unregisterObserver(observer);
+    }
+
+    public InvoiceEventJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() {
+        live.close();
+        journal.close();
+    }
+}
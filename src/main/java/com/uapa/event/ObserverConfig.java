@@ -0,0 +1,40 @@
+package com.uapa.event;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Configuración de la cola de entrega de un observador en modo asíncrono.
+ */
+@Value
+@Builder
+public class ObserverConfig {
+    public enum OverflowPolicy {
+        // Descarta el evento pendiente más antiguo para dejar sitio al nuevo
+        DROP_OLDEST,
+        // Descarta el evento que llega
+        DROP_NEWEST,
+        // El publicador espera a que el observador libere espacio, como mucho
+        // blockTimeout; después descarta el evento que llega
+        BLOCK,
+        // Con la cola llena solo se conserva el evento más reciente
+        COALESCE
+    }
+
+    // Por defecto un observador atascado no frena la publicación: pierde sus
+    // eventos más antiguos, que se cuentan en ObserverStats.dropped
+    @Builder.Default
+    OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    // Eventos pendientes que admite la cola; debe ser potencia de dos
+    @Builder.Default
+    int queueCapacity = 1024;
+    // Política BLOCK: espera máxima del publicador por cada evento con la cola llena
+    @Builder.Default
+    Duration blockTimeout = Duration.ofMillis(100);
+
+    public static ObserverConfig defaults() {
+        return ObserverConfig.builder().build();
+    }
+}
@@ -0,0 +1,232 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import com.uapa.observer.InvoiceObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cola de entrega de un único observador: un {@link InvoiceRingBuffer} con un
+ * productor (el publicador) y un consumidor (el hilo del observador). Los
+ * eventos se entregan en orden y sin crear objetos por evento. En modo
+ * BATCHED el consumidor entrega los eventos en lotes con
+ * {@link InvoiceObserver#updateBatch(List)}.
+ *
+ * Cuando la cola está llena se aplica la {@link ObserverConfig.OverflowPolicy}
+ * del observador, de modo que un observador lento o que falla no afecta a
+ * los demás.
+ */
+final class ObserverDispatcher implements Runnable {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final InvoiceObserver observer;
+    private final ObserverConfig.OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final InvoiceRingBuffer ring;
+    // Evento más reciente retenido por COALESCE mientras la cola está llena
+    private final AtomicReference<Invoice> coalesced = new AtomicReference<>();
+    private final Thread thread;
+    private volatile boolean halted;
+    // Condición extra de espera del consumidor; se crea una vez, no en cada espera
+    private final BooleanSupplier readyWithoutEvent = () -> halted || coalesced.get() != null;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalHandlerNanos = new AtomicLong();
+    private final AtomicLong maxHandlerNanos = new AtomicLong();
+
+    ObserverDispatcher(InvoiceObserver observer, ObserverConfig config, EventPublisherConfig publisherConfig) {
+        this.ring = new InvoiceRingBuffer(config.getQueueCapacity(), publisherConfig.getWaitStrategy());
+        this.observer = observer;
+        this.policy = config.getOverflowPolicy();
+        this.blockTimeoutNanos = config.getBlockTimeout().toNanos();
+        // Fuera del modo BATCHED cada evento se entrega por separado con update()
+        this.maxBatchSize = publisherConfig.getMode() == EventPublisherConfig.DispatchMode.BATCHED
+                ? Math.max(1, publisherConfig.getMaxBatchSize())
+                : 1;
+        this.maxBatchDelayNanos = publisherConfig.getMaxBatchDelay().toNanos();
+        this.thread = new Thread(this, "invoice-event-" + THREAD_COUNT.incrementAndGet());
+        this.thread.setDaemon(true);
+    }
+
+    InvoiceObserver getObserver() {
+        return observer;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // Sincronizado por cola y no en el publicador: el ring admite un solo
+    // productor, pero esperar por este observador no retiene a los demás
+    synchronized void offer(Invoice invoice) {
+        switch (policy) {
+            case BLOCK:
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (ring.isFull()) {
+                    if (halted || System.nanoTime() - deadline >= 0) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    ring.awaitSpace();
+                }
+                break;
+            case DROP_NEWEST:
+                if (ring.isFull()) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (ring.isFull()) {
+                    if (ring.dropOldest()) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+            case COALESCE:
+                // Mientras haya un evento retenido, los siguientes lo sustituyen
+                // para no adelantarse a él en la cola
+                if (coalesced.get() != null || ring.isFull()) {
+                    if (coalesced.getAndSet(invoice) != null) {
+                        dropped.incrementAndGet();
+                    }
+                    ring.wakeConsumer();
+                    return;
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown overflow policy " + policy);
+        }
+        ring.publish(invoice);
+    }
+
+    // Deja de esperar eventos; el hilo termina tras entregar los pendientes
+    void halt() {
+        halted = true;
+        ring.wakeConsumer();
+    }
+
+    void awaitTermination(long timeoutNanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.timedJoin(thread, Math.max(1, timeoutNanos));
+    }
+
+    ObserverStats getStats() {
+        long lag = ring.size() + (coalesced.get() != null ? 1 : 0);
+        return ObserverStats.builder()
+                .lag(lag)
+                .delivered(delivered.get())
+                .calls(calls.get())
+                .dropped(dropped.get() + ring.getLostCount())
+                .failed(failed.get())
+                .totalHandlerNanos(totalHandlerNanos.get())
+                .maxHandlerNanos(maxHandlerNanos.get())
+                .build();
+    }
+
+    @Override
+    public void run() {
+        if (maxBatchSize > 1) {
+            runBatched();
+            return;
+        }
+        while (true) {
+            // Se lee antes que la cola: si ya se pidió parar, todo lo publicado
+            // es visible y se entrega antes de salir
+            boolean stopping = halted;
+            Invoice invoice = poll();
+            if (invoice != null) {
+                deliver(invoice);
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            waitForEvent(false, 0);
+        }
+    }
+
+    // Agrupa eventos hasta llenar el lote o hasta que el primero lleve maxBatchDelay esperando
+    private void runBatched() {
+        List<Invoice> batch = new ArrayList<>(maxBatchSize);
+        long deadline = 0;
+        while (true) {
+            boolean stopping = halted;
+            Invoice invoice = poll();
+            if (invoice != null) {
+                if (batch.isEmpty()) {
+                    deadline = System.nanoTime() + maxBatchDelayNanos;
+                }
+                batch.add(invoice);
+                if (batch.size() >= maxBatchSize) {
+                    batch = deliverBatch(batch);
+                }
+                continue;
+            }
+            if (!batch.isEmpty() && (stopping || System.nanoTime() - deadline >= 0)) {
+                batch = deliverBatch(batch);
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            waitForEvent(!batch.isEmpty(), deadline);
+        }
+    }
+
+    // Reclama el siguiente evento de la cola, o el retenido por COALESCE si la cola está vacía
+    private Invoice poll() {
+        Invoice invoice = ring.poll();
+        return invoice != null ? invoice : coalesced.getAndSet(null);
+    }
+
+    private void deliver(Invoice invoice) {
+        long start = System.nanoTime();
+        try {
+            observer.update(invoice);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("[Event] Error en observador " + observer + ": " + e);
+        }
+        recordDelivery(1, System.nanoTime() - start);
+    }
+
+    // El observador puede quedarse con la lista: cada lote usa una nueva
+    private List<Invoice> deliverBatch(List<Invoice> batch) {
+        long start = System.nanoTime();
+        try {
+            observer.updateBatch(batch);
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("[Event] Error en observador " + observer + ": " + e);
+        }
+        recordDelivery(batch.size(), System.nanoTime() - start);
+        return new ArrayList<>(maxBatchSize);
+    }
+
+    private void recordDelivery(int events, long elapsed) {
+        delivered.addAndGet(events);
+        calls.incrementAndGet();
+        totalHandlerNanos.addAndGet(elapsed);
+        maxHandlerNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    // Espera a que haya un evento nuevo o, si timed, como mucho hasta deadline
+    private void waitForEvent(boolean timed, long deadline) {
+        try {
+            ring.awaitEvent(readyWithoutEvent, timed, deadline);
+        } catch (InterruptedException e) {
+            halted = true;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.uapa.event;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ObserverStats {
+    // Eventos aceptados en la cola que el observador aún no ha recibido
+    long lag;
+    long delivered;
+    // Llamadas a update() o updateBatch(); menos que delivered si se entregan lotes
+    long calls;
+    long dropped;
+    // Eventos cuya entrega lanzó una excepción
+    long failed;
+    // Tiempo dentro de update() o updateBatch()
+    long totalHandlerNanos;
+    long maxHandlerNanos;
+
+    // Tiempo medio por evento entregado
+    public double getAverageHandlerMillis() {
+        return delivered == 0 ? 0.0 : totalHandlerNanos / 1_000_000.0 / delivered;
+    }
+
+    public double getAverageBatchSize() {
+        return calls == 0 ? 0.0 : (double) delivered / calls;
+    }
+
+    public double getMaxHandlerMillis() {
+        return maxHandlerNanos / 1_000_000.0;
+    }
+}
@@ -2,24 +2,133 @@ package com.uapa.event;
 
 import com.uapa.model.Invoice;
 import com.uapa.observer.InvoiceObserver;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-public class SimpleInvoiceEventPublisher implements InvoiceEventPublisher {
+public class SimpleInvoiceEventPublisher implements InvoiceEventPublisher, AutoCloseable {
     private final List<InvoiceObserver> observers = new CopyOnWriteArrayList<>();
+    private final EventPublisherConfig config;
+    // Solo en modo asíncrono: una cola y un hilo por observador
+    private volatile ObserverDispatcher[] dispatchers = new ObserverDispatcher[0];
+    // Separado del bloqueo de publicación para poder dar de baja a un observador
+    // mientras el publicador espera por él
+    private final Object registrationLock = new Object();
+    private volatile boolean closed;
+
+    public SimpleInvoiceEventPublisher() {
+        this(EventPublisherConfig.defaults());
+    }
+
+    public SimpleInvoiceEventPublisher(EventPublisherConfig config) {
+        this.config = config;
+    }
 
     public void registerObserver(InvoiceObserver observer) {
-        observers.add(observer);
+        registerObserver(observer, ObserverConfig.defaults());
+    }
+
+    // La configuración de la cola solo se aplica en modo asíncrono
+    public void registerObserver(InvoiceObserver observer, ObserverConfig observerConfig) {
+        if (!isAsync()) {
+            observers.add(observer);
+            return;
+        }
+        synchronized (registrationLock) {
+            if (closed) {
+                throw new IllegalStateException("Event publisher is closed");
+            }
+            // El nuevo observador solo recibe los eventos publicados a partir de ahora
+            ObserverDispatcher dispatcher = new ObserverDispatcher(observer, observerConfig, config);
+            ObserverDispatcher[] current = dispatchers;
+            ObserverDispatcher[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = dispatcher;
+            dispatchers = updated;
+            observers.add(observer);
+            dispatcher.start();
+        }
     }
 
     public void unregisterObserver(InvoiceObserver observer) {
         observers.remove(observer);
+        synchronized (registrationLock) {
+            ObserverDispatcher[] current = dispatchers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].getObserver() == observer) {
+                    ObserverDispatcher[] updated = new ObserverDispatcher[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    dispatchers = updated;
+                    current[i].halt();
+                    return;
+                }
+            }
+        }
     }
 
     @Override
     public void publishInvoiceCreated(Invoice invoice) {
+        if (isAsync()) {
+            publishAsync(invoice);
+            return;
+        }
         for (InvoiceObserver observer : observers) {
-            observer.update(invoice);
+            try {
+                observer.update(invoice);
+            } catch (RuntimeException e) {
+                // Un observador que falla no debe impedir que se notifique a los demás
+                System.err.println("[Event] Error en observador " + observer + ": " + e);
+            }
+        }
+    }
+
+    // Métricas de la cola del observador; vacío en modo síncrono o si no está registrado
+    public Optional<ObserverStats> getObserverStats(InvoiceObserver observer) {
+        for (ObserverDispatcher dispatcher : dispatchers) {
+            if (dispatcher.getObserver() == observer) {
+                return Optional.of(dispatcher.getStats());
+            }
         }
+        return Optional.empty();
+    }
+
+    // En modo asíncrono, entrega los eventos pendientes y detiene los hilos de los observadores
+    @Override
+    public void close() {
+        ObserverDispatcher[] current;
+        synchronized (registrationLock) {
+            closed = true;
+            current = dispatchers;
+            dispatchers = new ObserverDispatcher[0];
+        }
+        for (ObserverDispatcher dispatcher : current) {
+            dispatcher.halt();
+        }
+        long deadline = System.nanoTime() + config.getShutdownTimeout().toNanos();
+        for (ObserverDispatcher dispatcher : current) {
+            try {
+                dispatcher.awaitTermination(deadline - System.nanoTime());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Sin cerrojo global: cada cola serializa sus productores (ObserverDispatcher.offer).
+    // Solo un observador con política BLOCK y la cola llena hace esperar aquí, y
+    // como mucho su blockTimeout por evento.
+    private void publishAsync(Invoice invoice) {
+        if (closed) {
+            throw new IllegalStateException("Event publisher is closed");
+        }
+        for (ObserverDispatcher dispatcher : dispatchers) {
+            dispatcher.offer(invoice);
+        }
+    }
+
+    private boolean isAsync() {
+        return config.getMode() != EventPublisherConfig.DispatchMode.SYNC;
     }
 }
@@ -0,0 +1,69 @@
+package com.uapa.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato binario compacto de una factura para los ficheros locales (diario
+ * de eventos y diario de escritura diferida): id, fecha, total y líneas.
+ */
+public final class InvoiceCodec {
+
+    private InvoiceCodec() {
+    }
+
+    public static byte[] encode(Invoice invoice) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, invoice.getId());
+            out.writeLong(invoice.getDate().toEpochDay());
+            out.writeDouble(invoice.getTotal());
+            List<InvoiceItem> items = invoice.getItems() == null ? List.of() : invoice.getItems();
+            out.writeInt(items.size());
+            for (InvoiceItem item : items) {
+                writeString(out, item.getProduct());
+                out.writeInt(item.getQuantity());
+                out.writeDouble(item.getPrice());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Invoice decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        String id = readString(in);
+        LocalDate date = LocalDate.ofEpochDay(in.getLong());
+        double total = in.getDouble();
+        int count = in.getInt();
+        List<InvoiceItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(InvoiceItem.builder()
+                    .product(readString(in))
+                    .quantity(in.getInt())
+                    .price(in.getDouble())
+                    .build());
+        }
+        return Invoice.builder().id(id).date(date).total(total).items(items).build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
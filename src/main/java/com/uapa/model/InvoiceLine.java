@@ -0,0 +1,49 @@
+package com.uapa.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.*;
+
+// Una fila del listado: un ítem de factura, o la factura sola si no tiene ítems
+@Value
+@Builder
+public class InvoiceLine {
+    String invoiceId;
+    LocalDate date;
+    double invoiceTotal;
+    // null cuando la factura no tiene ítems
+    String product;
+    int quantity;
+    double price;
+    // Clave primaria del ítem (null sin ítem); permite continuar la lectura a partir de esta fila
+    Long itemId;
+
+    public boolean hasItem() {
+        return product != null;
+    }
+
+    public double getLineTotal() {
+        return hasItem() ? price * quantity : invoiceTotal;
+    }
+
+    public static List<InvoiceLine> linesOf(Invoice invoice) {
+        List<InvoiceLine> lines = new ArrayList<>();
+        InvoiceLineBuilder base = InvoiceLine.builder()
+                .invoiceId(invoice.getId())
+                .date(invoice.getDate())
+                .invoiceTotal(invoice.getTotal());
+        if (invoice.getItems() == null || invoice.getItems().isEmpty()) {
+            lines.add(base.build());
+        } else {
+            for (InvoiceItem item : invoice.getItems()) {
+                lines.add(base.product(item.getProduct())
+                        .quantity(item.getQuantity())
+                        .price(item.getPrice())
+                        .build());
+            }
+        }
+        return lines;
+    }
+}
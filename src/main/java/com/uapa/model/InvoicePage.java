@@ -0,0 +1,16 @@
+package com.uapa.model;
+
+import java.util.List;
+
+import lombok.*;
+
+@Value
+public class InvoicePage {
+    List<Invoice> invoices;
+    // Clave para pedir la página siguiente; null si no hay más facturas
+    InvoicePageKey nextKey;
+
+    public boolean hasMore() {
+        return nextKey != null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.uapa.model;
+
+import java.time.LocalDate;
+
+import lombok.*;
+
+// Posición de la última factura de una página: (fecha, id)
+@Value
+public class InvoicePageKey {
+    LocalDate date;
+    String id;
+
+    public static InvoicePageKey of(Invoice invoice) {
+        return new InvoicePageKey(invoice.getDate(), invoice.getId());
+    }
+}
@@ -0,0 +1,20 @@
+package com.uapa.observer;
+
+import com.uapa.model.Invoice;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Observador que trabaja por lotes (por ejemplo, uno que escribe en un
+ * fichero o en la vista). Si se le notifica un evento suelto, lo recibe como
+ * un lote de uno.
+ */
+public interface InvoiceBatchObserver extends InvoiceObserver {
+    @Override
+    void updateBatch(List<Invoice> invoices);
+
+    @Override
+    default void update(Invoice invoice) {
+        updateBatch(Collections.singletonList(invoice));
+    }
+}
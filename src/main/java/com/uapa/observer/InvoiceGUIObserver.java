@@ -2,20 +2,125 @@ package com.uapa.observer;
 
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
 import com.uapa.model.Invoice;
+import java.util.List;
 
 public class InvoiceGUIObserver implements InvoiceObserver {
+    static final int DEFAULT_MAX_LINES = 1000;
+    static final int DEFAULT_FRAME_MILLIS = 16;
+
     private final JTextArea logArea;
+    private final int maxLines;
+    private final long frameNanos;
+    // Líneas pendientes de pintar (ring buffer). Si entre dos pintados llegan
+    // más de maxLines, solo se guardan las últimas: las demás no llegarían a verse.
+    private final String[] pending;
+    private int pendingHead;
+    private int pendingSize;
+    private boolean flushScheduled;
+    // Solo se escribe en el EDT
+    private volatile long lastFlushNanos;
+    private final Timer flushTimer;
 
     public InvoiceGUIObserver(JTextArea logArea) {
+        this(logArea, DEFAULT_MAX_LINES, DEFAULT_FRAME_MILLIS);
+    }
+
+    public InvoiceGUIObserver(JTextArea logArea, int maxLines, int frameMillis) {
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("maxLines must be at least 1");
+        }
         this.logArea = logArea;
+        this.maxLines = maxLines;
+        this.frameNanos = frameMillis * 1_000_000L;
+        this.pending = new String[maxLines];
+        this.lastFlushNanos = System.nanoTime() - frameNanos;
+        this.flushTimer = new Timer(frameMillis, e -> flush());
+        this.flushTimer.setRepeats(false);
     }
 
     @Override
     public void update(Invoice invoice) {
-        SwingUtilities.invokeLater(() -> {
-            logArea.append("[Observer] Factura generada: " + invoice.getId()
-                    + " | Total: " + invoice.getTotal() + "\n");
-        });
+        synchronized (this) {
+            addLine(format(invoice));
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void updateBatch(List<Invoice> invoices) {
+        synchronized (this) {
+            for (Invoice invoice : invoices) {
+                addLine(format(invoice));
+            }
+        }
+        scheduleFlush();
+    }
+
+    private static String format(Invoice invoice) {
+        return "[Observer] Factura generada: " + invoice.getId() + " | Total: " + invoice.getTotal() + "\n";
+    }
+
+    private void addLine(String line) {
+        pending[(pendingHead + pendingSize) % maxLines] = line;
+        if (pendingSize < maxLines) {
+            pendingSize++;
+        } else {
+            pendingHead = (pendingHead + 1) % maxLines;
+        }
+    }
+
+    // Como mucho un pintado por frame: si el último fue hace menos de un frame,
+    // se espera al siguiente y mientras tanto las líneas se acumulan
+    private void scheduleFlush() {
+        synchronized (this) {
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        long wait = frameNanos - (System.nanoTime() - lastFlushNanos);
+        if (wait <= 0) {
+            SwingUtilities.invokeLater(this::flush);
+        } else {
+            flushTimer.setInitialDelay((int) Math.max(1, wait / 1_000_000L));
+            flushTimer.restart();
+        }
+    }
+
+    private void flush() {
+        StringBuilder text = new StringBuilder();
+        synchronized (this) {
+            for (int i = 0; i < pendingSize; i++) {
+                int index = (pendingHead + i) % maxLines;
+                text.append(pending[index]);
+                pending[index] = null;
+            }
+            pendingHead = 0;
+            pendingSize = 0;
+            flushScheduled = false;
+        }
+        lastFlushNanos = System.nanoTime();
+        if (text.length() == 0) {
+            return;
+        }
+        logArea.append(text.toString());
+        trimToMaxLines();
+    }
+
+    // El documento nunca crece más allá de maxLines líneas
+    private void trimToMaxLines() {
+        // La última línea está vacía porque cada entrada termina en salto de línea
+        int excess = logArea.getLineCount() - 1 - maxLines;
+        if (excess <= 0) {
+            return;
+        }
+        try {
+            logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+        } catch (BadLocationException e) {
+            // El texto cambió mientras tanto; se recorta en el siguiente pintado
+        }
     }
 }
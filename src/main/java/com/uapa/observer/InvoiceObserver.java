@@ -1,7 +1,16 @@
 package com.uapa.observer;
 
 import com.uapa.model.Invoice;
+import java.util.List;
 
 public interface InvoiceObserver {
     void update(Invoice invoice);
+
+    // Recibe varios eventos de una vez. Por defecto los entrega uno a uno, así
+    // que los observadores existentes funcionan sin cambios.
+    default void updateBatch(List<Invoice> invoices) {
+        for (Invoice invoice : invoices) {
+            update(invoice);
+        }
+    }
 }
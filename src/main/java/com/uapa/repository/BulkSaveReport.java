@@ -0,0 +1,57 @@
+package com.uapa.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+// Resultado de InvoiceRepository.saveInvoices, con el detalle de cada lote confirmado
+public class BulkSaveReport {
+    private final List<ChunkReport> chunks = new ArrayList<>();
+
+    void addChunk(ChunkReport chunk) {
+        chunks.add(chunk);
+    }
+
+    public List<ChunkReport> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    public int getSavedCount() {
+        return chunks.stream().mapToInt(ChunkReport::getSaved).sum();
+    }
+
+    public List<RejectedInvoice> getRejected() {
+        List<RejectedInvoice> rejected = new ArrayList<>();
+        for (ChunkReport chunk : chunks) {
+            rejected.addAll(chunk.getRejected());
+        }
+        return rejected;
+    }
+
+    public boolean hasFailures() {
+        return chunks.stream().anyMatch(chunk -> !chunk.getRejected().isEmpty());
+    }
+
+    @Value
+    @Builder
+    public static class ChunkReport {
+        int index;
+        int size;
+        int saved;
+        List<RejectedInvoice> rejected;
+        long elapsedNanos;
+
+        public double getInvoicesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : saved * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    @Value
+    public static class RejectedInvoice {
+        String invoiceId;
+        Exception cause;
+    }
+}
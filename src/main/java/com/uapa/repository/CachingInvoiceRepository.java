@@ -0,0 +1,180 @@
+package com.uapa.repository;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Decorador que guarda en memoria las facturas leídas con
+ * {@link #getInvoiceById(String)}. Las consultas concurrentes de una misma
+ * factura que no está en caché comparten una única carga, y cada guardado
+ * invalida las facturas afectadas. Los listados y la paginación van siempre
+ * al repositorio decorado.
+ *
+ * Las facturas son mutables, así que cada llamador recibe su propia copia y
+ * la instancia en caché no puede modificarse desde fuera.
+ */
+public class CachingInvoiceRepository implements InvoiceRepository {
+    private final InvoiceRepository delegate;
+    private final InvoiceCache cache;
+    private final ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+
+    public CachingInvoiceRepository(InvoiceRepository delegate) {
+        this(delegate, InvoiceCacheConfig.defaults());
+    }
+
+    public CachingInvoiceRepository(InvoiceRepository delegate, InvoiceCacheConfig config) {
+        this.delegate = delegate;
+        this.cache = new InvoiceCache(config);
+    }
+
+    @Override
+    public void saveInvoice(Invoice invoice) {
+        try {
+            delegate.saveInvoice(invoice);
+        } finally {
+            invalidate(invoice.getId());
+        }
+    }
+
+    // Se invalida otra vez al aplicarse: hasta entonces el repositorio decorado
+    // puede devolver la versión anterior
+    @Override
+    public CompletableFuture<Void> saveInvoiceAsync(Invoice invoice) {
+        CompletableFuture<Void> applied;
+        try {
+            applied = delegate.saveInvoiceAsync(invoice);
+        } finally {
+            invalidate(invoice.getId());
+        }
+        return applied.whenComplete((ignored, error) -> invalidate(invoice.getId()));
+    }
+
+    @Override
+    public BulkSaveReport saveInvoices(Collection<Invoice> invoices) {
+        try {
+            return delegate.saveInvoices(invoices);
+        } finally {
+            for (Invoice invoice : invoices) {
+                invalidate(invoice.getId());
+            }
+        }
+    }
+
+    @Override
+    public Optional<Invoice> getInvoiceById(String id) {
+        Invoice cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        Load load = new Load();
+        Load running = loading.putIfAbsent(id, load);
+        if (running != null) {
+            // Otro hilo ya está cargando esta factura: se espera a su resultado
+            return await(running.result).map(CachingInvoiceRepository::copy);
+        }
+        try {
+            Optional<Invoice> loaded = delegate.getInvoiceById(id);
+            loads.increment();
+            loaded.ifPresent(invoice -> cache.putIfValid(id, invoice, () -> !load.stale));
+            load.result.complete(loaded);
+            return loaded.map(CachingInvoiceRepository::copy);
+        } catch (RuntimeException e) {
+            load.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, load);
+        }
+    }
+
+    // Una carga en curso pudo leer la versión anterior: no se guarda en caché y
+    // las lecturas que lleguen después del guardado empiezan una carga nueva
+    private void invalidate(String id) {
+        Load running = loading.remove(id);
+        if (running != null) {
+            running.stale = true;
+        }
+        cache.invalidate(id);
+    }
+
+    @Override
+    public List<Invoice> getAllInvoices() {
+        return delegate.getAllInvoices();
+    }
+
+    @Override
+    public InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        return delegate.findPage(afterKey, limit);
+    }
+
+    @Override
+    public long countInvoiceLines() {
+        return delegate.countInvoiceLines();
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLines(long offset, int limit) {
+        return delegate.findInvoiceLines(offset, limit);
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit) {
+        return delegate.findInvoiceLinesAfter(last, limit);
+    }
+
+    @Override
+    public Stream<Invoice> streamAllInvoices() {
+        return delegate.streamAllInvoices();
+    }
+
+    public InvoiceCacheStats getCacheStats() {
+        return InvoiceCacheStats.builder()
+                .hitCount(cache.getHitCount())
+                .missCount(cache.getMissCount())
+                .loadCount(loads.sum())
+                .evictionCount(cache.getEvictionCount())
+                .size(cache.size())
+                .build();
+    }
+
+    private static Optional<Invoice> await(CompletableFuture<Optional<Invoice>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Invoice copy(Invoice invoice) {
+        List<InvoiceItem> items = null;
+        if (invoice.getItems() != null) {
+            items = new ArrayList<>(invoice.getItems().size());
+            for (InvoiceItem item : invoice.getItems()) {
+                items.add(new InvoiceItem(item.getProduct(), item.getQuantity(), item.getPrice()));
+            }
+        }
+        return new Invoice(invoice.getId(), invoice.getDate(), items, invoice.getTotal());
+    }
+
+    private static final class Load {
+        private final CompletableFuture<Optional<Invoice>> result = new CompletableFuture<>();
+        // Solo pasa a true, antes de invalidar la clave en la caché
+        private volatile boolean stale;
+    }
+}
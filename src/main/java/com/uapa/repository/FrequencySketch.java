@@ -0,0 +1,70 @@
+package com.uapa.repository;
+
+/**
+ * Estimación aproximada de la frecuencia de acceso (Count-Min Sketch) con
+ * contadores de 4 bits, dieciséis por long. Cuando el número de accesos
+ * registrados llega a diez veces la capacidad, todos los contadores se
+ * reducen a la mitad para que las claves que dejaron de usarse pierdan peso.
+ * No es seguro para hilos: el llamador debe sincronizar.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        // Un long (dieciséis contadores) por entrada de la caché reduce las colisiones
+        int length = maximumSize <= 1 ? 1 : Integer.highestOneBit(maximumSize - 1) << 1;
+        this.table = new long[length];
+        this.counterMask = table.length * 16 - 1;
+        this.sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int slot = index >>> 4;
+            int shift = (index & 15) << 2;
+            if (((table[slot] >>> shift) & 0xF) < MAX_COUNT) {
+                table[slot] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    // Envejecimiento: divide todos los contadores entre dos
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 32;
+        return (int) h & counterMask;
+    }
+}
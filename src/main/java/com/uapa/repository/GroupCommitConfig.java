@@ -0,0 +1,21 @@
+package com.uapa.repository;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class GroupCommitConfig {
+    // Tiempo máximo que una factura espera a que se le unan otras en la misma transacción
+    @Builder.Default
+    Duration window = Duration.ofMillis(5);
+    // Número máximo de facturas por transacción
+    @Builder.Default
+    int maxBatchSize = 100;
+
+    public static GroupCommitConfig defaults() {
+        return GroupCommitConfig.builder().build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.uapa.repository;
+
+import com.uapa.config.DatabaseConnector;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio que agrupa las llamadas concurrentes a {@link #saveInvoice(Invoice)}
+ * en una sola transacción (group commit). Cada llamador sigue recibiendo su
+ * propio resultado: si la transacción del grupo falla, las facturas se
+ * reintentan una a una para aislar la que provocó el error.
+ */
+public class GroupCommitInvoiceRepository implements InvoiceRepository, AutoCloseable {
+    private final DatabaseConnector connector;
+    private final GroupCommitConfig config;
+    // Las lecturas y los guardados masivos se delegan en el repositorio normal
+    private final InvoiceRepositoryImpl reader;
+    private final BlockingQueue<PendingSave> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private final LongAdder groupCount = new LongAdder();
+    // Comprobar que sigue abierto y encolar es atómico respecto al cierre: una
+    // factura encolada siempre llega antes de la última comprobación del flusher
+    private final Object stateLock = new Object();
+    private volatile boolean running = true;
+
+    public GroupCommitInvoiceRepository(DatabaseConnector connector) {
+        this(connector, GroupCommitConfig.defaults());
+    }
+
+    public GroupCommitInvoiceRepository(DatabaseConnector connector, GroupCommitConfig config) {
+        if (config.getMaxBatchSize() < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.connector = connector;
+        this.config = config;
+        this.reader = new InvoiceRepositoryImpl(connector);
+        this.flusher = new Thread(this::flushLoop, "invoice-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void saveInvoice(Invoice invoice) {
+        PendingSave pending = new PendingSave(invoice);
+        synchronized (stateLock) {
+            if (!running) {
+                throw new IllegalStateException("Group commit repository is closed");
+            }
+            queue.add(pending);
+        }
+        try {
+            pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while saving invoice " + invoice.getId(), e);
+        } catch (ExecutionException e) {
+            throw new RepositoryException("Error saving invoice " + invoice.getId(), e.getCause());
+        }
+    }
+
+    // Los guardados masivos ya van en lotes; no pasan por la cola de group commit
+    @Override
+    public BulkSaveReport saveInvoices(Collection<Invoice> invoices) {
+        return reader.saveInvoices(invoices);
+    }
+
+    @Override
+    public Optional<Invoice> getInvoiceById(String id) {
+        return reader.getInvoiceById(id);
+    }
+
+    @Override
+    public List<Invoice> getAllInvoices() {
+        return reader.getAllInvoices();
+    }
+
+    @Override
+    public InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        return reader.findPage(afterKey, limit);
+    }
+
+    @Override
+    public long countInvoiceLines() {
+        return reader.countInvoiceLines();
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLines(long offset, int limit) {
+        return reader.findInvoiceLines(offset, limit);
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit) {
+        return reader.findInvoiceLinesAfter(last, limit);
+    }
+
+    @Override
+    public Stream<Invoice> streamAllInvoices() {
+        return reader.streamAllInvoices();
+    }
+
+    // Número de transacciones de grupo confirmadas
+    public long getGroupCount() {
+        return groupCount.sum();
+    }
+
+    // Deja de aceptar facturas y espera a que se confirmen las pendientes
+    @Override
+    public void close() {
+        synchronized (stateLock) {
+            running = false;
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Solo quedan facturas si el flusher terminó por una interrupción
+        PendingSave leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.result.completeExceptionally(new RepositoryException(
+                    "Group commit repository closed before saving invoice " + leftover.invoice.getId(), null));
+        }
+    }
+
+    private void flushLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSave first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    commitGroup(collectGroup(first));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Reúne facturas hasta llenar el lote o agotar la ventana de espera
+    private List<PendingSave> collectGroup(PendingSave first) throws InterruptedException {
+        List<PendingSave> group = new ArrayList<>();
+        group.add(first);
+        long deadline = System.nanoTime() + config.getWindow().toNanos();
+        while (group.size() < config.getMaxBatchSize()) {
+            queue.drainTo(group, config.getMaxBatchSize() - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= config.getMaxBatchSize() || remaining <= 0) {
+                break;
+            }
+            PendingSave next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+        }
+        return group;
+    }
+
+    private void commitGroup(List<PendingSave> group) {
+        List<Invoice> invoices = new ArrayList<>(group.size());
+        for (PendingSave pending : group) {
+            invoices.add(pending.invoice);
+        }
+        try {
+            commit(invoices);
+            groupCount.increment();
+            for (PendingSave pending : group) {
+                pending.result.complete(null);
+            }
+            System.out.println("[Repository] Grupo de " + group.size() + " facturas guardado");
+        } catch (SQLException | RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // Reintentar individualmente para que solo fallen las facturas inválidas
+            for (PendingSave pending : group) {
+                try {
+                    commit(List.of(pending.invoice));
+                    pending.result.complete(null);
+                } catch (SQLException | RuntimeException single) {
+                    pending.result.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void commit(List<Invoice> invoices) throws SQLException {
+        try (Connection connection = connector.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                InvoiceRepositoryImpl.insertInvoices(connection, invoices);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static final class PendingSave {
+        private final Invoice invoice;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingSave(Invoice invoice) {
+            this.invoice = invoice;
+        }
+    }
+}
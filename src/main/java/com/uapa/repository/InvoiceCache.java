@@ -0,0 +1,174 @@
+package com.uapa.repository;
+
+import com.uapa.model.Invoice;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Caché acotada de facturas con la política W-TinyLFU. Las claves nuevas
+ * entran en una ventana LRU pequeña; al salir de ella solo pasan a la zona
+ * principal (LRU segmentada: prueba + protegida) si se han pedido más veces
+ * que la víctima que desplazarían, según un {@link FrequencySketch}. Así un
+ * recorrido de claves que se piden una sola vez no expulsa a las habituales.
+ *
+ * Las lecturas no esperan al cerrojo de la política: si está ocupado, el
+ * acceso se sirve igualmente y solo se pierde su efecto sobre el orden LRU.
+ */
+final class InvoiceCache {
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final Map<String, Invoice> values = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    // Protegidos por policyLock; ordenados por acceso, la primera clave es la menos reciente
+    private final LinkedHashMap<String, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    InvoiceCache(InvoiceCacheConfig config) {
+        if (config.getMaximumSize() < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        if (config.getWindowRatio() <= 0 || config.getWindowRatio() >= 1) {
+            throw new IllegalArgumentException("windowRatio must be between 0 and 1");
+        }
+        int maximumSize = config.getMaximumSize();
+        this.windowMax = Math.max(1, (int) (maximumSize * config.getWindowRatio()));
+        this.mainMax = maximumSize - windowMax;
+        this.protectedMax = (int) (mainMax * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    Invoice get(String key) {
+        Invoice value = values.get(key);
+        if (value == null) {
+            misses.increment();
+            policyLock.lock();
+            try {
+                sketch.increment(key);
+            } finally {
+                policyLock.unlock();
+            }
+            return null;
+        }
+        hits.increment();
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(key);
+                onHit(key);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Guarda una factura cargada si {@code stillValid} sigue siendo cierto. Se
+     * evalúa con el cerrojo tomado, así que una invalidación de la clave que
+     * llegue después siempre borra lo que se guarde aquí.
+     */
+    void putIfValid(String key, Invoice value, BooleanSupplier stillValid) {
+        policyLock.lock();
+        try {
+            if (!stillValid.getAsBoolean()) {
+                return;
+            }
+            if (values.put(key, value) != null) {
+                onHit(key);
+                return;
+            }
+            window.put(key, Boolean.TRUE);
+            if (window.size() > windowMax) {
+                Iterator<String> eldest = window.keySet().iterator();
+                String candidate = eldest.next();
+                eldest.remove();
+                admit(candidate);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    void invalidate(String key) {
+        policyLock.lock();
+        try {
+            if (values.remove(key) != null) {
+                window.remove(key);
+                probation.remove(key);
+                protectedSegment.remove(key);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void onHit(String key) {
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+        if (probation.remove(key) != null) {
+            // Segundo acceso en la zona principal: pasa a protegida
+            protectedSegment.put(key, Boolean.TRUE);
+            if (protectedSegment.size() > protectedMax) {
+                Iterator<String> eldest = protectedSegment.keySet().iterator();
+                String demoted = eldest.next();
+                eldest.remove();
+                probation.put(demoted, Boolean.TRUE);
+            }
+        }
+    }
+
+    // La candidata que sale de la ventana compite con la víctima de la zona principal
+    private void admit(String candidate) {
+        if (probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(candidate, Boolean.TRUE);
+            return;
+        }
+        LinkedHashMap<String, Boolean> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        if (victimSegment.isEmpty()) {
+            evict(candidate);
+            return;
+        }
+        String victim = victimSegment.keySet().iterator().next();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            victimSegment.remove(victim);
+            evict(victim);
+            probation.put(candidate, Boolean.TRUE);
+        } else {
+            evict(candidate);
+        }
+    }
+
+    private void evict(String key) {
+        values.remove(key);
+        evictions.increment();
+    }
+}
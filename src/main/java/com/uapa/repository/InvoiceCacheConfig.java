@@ -0,0 +1,19 @@
+package com.uapa.repository;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoiceCacheConfig {
+    // Facturas en memoria como máximo
+    @Builder.Default
+    int maximumSize = 10_000;
+    // Parte de la capacidad reservada a la ventana de entrada (LRU pequeña)
+    @Builder.Default
+    double windowRatio = 0.01;
+
+    public static InvoiceCacheConfig defaults() {
+        return InvoiceCacheConfig.builder().build();
+    }
+}
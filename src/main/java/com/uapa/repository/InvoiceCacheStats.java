@@ -0,0 +1,21 @@
+package com.uapa.repository;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoiceCacheStats {
+    long hitCount;
+    long missCount;
+    // Consultas que llegaron al repositorio; menos que missCount si se comparten cargas
+    long loadCount;
+    // Entradas expulsadas por tamaño, incluidas las candidatas no admitidas
+    long evictionCount;
+    int size;
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+}
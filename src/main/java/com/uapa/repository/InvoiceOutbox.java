@@ -0,0 +1,141 @@
+package com.uapa.repository;
+
+import com.uapa.config.DatabaseConnector;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * Acceso a la tabla invoice_outbox. Cada factura guardada con el outbox
+ * activo deja una entrada pendiente en la misma transacción; el relay las
+ * lee en orden, publica los eventos y las marca como entregadas. Las
+ * entregadas se borran pasado un tiempo de retención ({@link #purgeDelivered}).
+ */
+public class InvoiceOutbox {
+    private final DatabaseConnector connector;
+
+    public InvoiceOutbox(DatabaseConnector connector) {
+        this.connector = connector;
+    }
+
+    // Se llama con la transacción de la factura abierta; no confirma nada
+    static void append(Connection connection, List<Invoice> invoices) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO invoice_outbox (invoice_id, created_at) VALUES (?, ?)")) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (Invoice invoice : invoices) {
+                ps.setString(1, invoice.getId());
+                ps.setTimestamp(2, now);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Entradas pendientes más antiguas, con la factura y sus ítems cargados
+    public List<OutboxEntry> findPending(int limit) {
+        String sql = "SELECT o.id AS outbox_id, i.id, i.date, i.total, ii.product, ii.quantity, ii.price " +
+                "FROM (SELECT id, invoice_id FROM invoice_outbox WHERE delivered_at IS NULL ORDER BY id LIMIT ?) o " +
+                "JOIN invoices i ON i.id = o.invoice_id " +
+                "LEFT JOIN invoice_items ii ON ii.invoice_id = i.id " +
+                // Los ítems, en el orden en que se insertaron
+                "ORDER BY o.id, ii._ROWID_";
+        try (Connection connection = connector.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            Map<Long, Invoice> invoices = new LinkedHashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long outboxId = rs.getLong("outbox_id");
+                    Invoice invoice = invoices.get(outboxId);
+                    if (invoice == null) {
+                        invoice = Invoice.builder()
+                                .id(rs.getString("id"))
+                                .date(rs.getDate("date").toLocalDate())
+                                .total(rs.getDouble("total"))
+                                .items(new ArrayList<>())
+                                .build();
+                        invoices.put(outboxId, invoice);
+                    }
+                    String product = rs.getString("product");
+                    if (product != null) {
+                        invoice.getItems().add(InvoiceItem.builder()
+                                .product(product)
+                                .quantity(rs.getInt("quantity"))
+                                .price(rs.getDouble("price"))
+                                .build());
+                    }
+                }
+            }
+            List<OutboxEntry> entries = new ArrayList<>(invoices.size());
+            for (Map.Entry<Long, Invoice> entry : invoices.entrySet()) {
+                entries.add(new OutboxEntry(entry.getKey(), entry.getValue()));
+            }
+            return entries;
+        } catch (SQLException e) {
+            throw new RepositoryException("Error reading pending outbox entries", e);
+        }
+    }
+
+    public void markDelivered(List<OutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (Connection connection = connector.getConnection();
+                PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE invoice_outbox SET delivered_at = ? WHERE id = ?")) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (OutboxEntry entry : entries) {
+                ps.setTimestamp(1, now);
+                ps.setLong(2, entry.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new RepositoryException("Error marking outbox entries as delivered", e);
+        }
+    }
+
+    // Borra las entradas entregadas antes de deliveredBefore y devuelve cuántas
+    public int purgeDelivered(Instant deliveredBefore) {
+        try (Connection connection = connector.getConnection();
+                PreparedStatement ps = connection.prepareStatement(
+                        "DELETE FROM invoice_outbox WHERE delivered_at < ?")) {
+            ps.setTimestamp(1, Timestamp.from(deliveredBefore));
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Error purging delivered outbox entries", e);
+        }
+    }
+
+    public long countPending() {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "SELECT COUNT(*) FROM invoice_outbox WHERE delivered_at IS NULL")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new RepositoryException("Error counting pending outbox entries", e);
+        }
+    }
+
+    @Value
+    public static class OutboxEntry {
+        long id;
+        Invoice invoice;
+    }
+}
@@ -0,0 +1,27 @@
+package com.uapa.repository;
+
+import java.util.List;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
+
+final class InvoicePages {
+    private InvoicePages() {
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be at least 1");
+        }
+    }
+
+    // Se piden limit + 1 facturas: si llega la extra, hay página siguiente
+    static InvoicePage of(List<Invoice> candidates, int limit) {
+        if (candidates.size() <= limit) {
+            return new InvoicePage(candidates, null);
+        }
+        List<Invoice> page = candidates.subList(0, limit);
+        return new InvoicePage(page, InvoicePageKey.of(page.get(limit - 1)));
+    }
+}
@@ -1,15 +1,87 @@
 package com.uapa.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
 
 public interface InvoiceRepository {
+    // Lanza RepositoryException (con la SQLException como causa) si no se puede guardar
     void saveInvoice(Invoice invoice);
 
+    // Se completa cuando la factura está en la base de datos. Los repositorios que
+    // guardan en el momento lo hacen antes de volver (y lanzan como saveInvoice);
+    // WriteBehindInvoiceRepository lo completa al aplicar el diario, o lo falla si
+    // la base de datos la rechaza entonces
+    default CompletableFuture<Void> saveInvoiceAsync(Invoice invoice) {
+        saveInvoice(invoice);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Guardado masivo. La implementación por defecto guarda las facturas una a una
+    // y las reporta como un único lote
+    default BulkSaveReport saveInvoices(Collection<Invoice> invoices) {
+        BulkSaveReport report = new BulkSaveReport();
+        List<BulkSaveReport.RejectedInvoice> rejected = new ArrayList<>();
+        long start = System.nanoTime();
+        for (Invoice invoice : invoices) {
+            try {
+                saveInvoice(invoice);
+            } catch (RuntimeException e) {
+                rejected.add(new BulkSaveReport.RejectedInvoice(invoice.getId(), e));
+            }
+        }
+        report.addChunk(BulkSaveReport.ChunkReport.builder()
+                .index(0)
+                .size(invoices.size())
+                .saved(invoices.size() - rejected.size())
+                .rejected(rejected)
+                .elapsedNanos(System.nanoTime() - start)
+                .build());
+        return report;
+    }
+
     Optional<Invoice> getInvoiceById(String id);
 
+    // Lanza RepositoryException si la lectura falla, nunca devuelve una lista parcial
     List<Invoice> getAllInvoices();
 
+    // Paginación por clave (fecha, id): devuelve hasta limit facturas posteriores a
+    // afterKey (null para la primera página). La implementación por defecto filtra
+    // en memoria; InvoiceRepositoryImpl lo resuelve en la base de datos.
+    default InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        InvoicePages.checkLimit(limit);
+        Comparator<Invoice> order = Comparator.comparing(Invoice::getDate).thenComparing(Invoice::getId);
+        List<Invoice> candidates = getAllInvoices().stream()
+                .filter(inv -> afterKey == null || order.compare(inv,
+                        Invoice.builder().date(afterKey.getDate()).id(afterKey.getId()).build()) > 0)
+                .sorted(order)
+                .limit(limit + 1L)
+                .collect(Collectors.toList());
+        return InvoicePages.of(candidates, limit);
+    }
+
+    // Filas del listado (una por ítem), ordenadas por (fecha, id de factura, ítem)
+    long countInvoiceLines();
+
+    List<InvoiceLine> findInvoiceLines(long offset, int limit);
+
+    // Igual que findInvoiceLines pero continuando tras la fila last (null = desde el principio)
+    List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit);
+
+    // Recorre las facturas ordenadas por id sin cargarlas todas en memoria.
+    // El stream debe cerrarse (try-with-resources) para liberar la conexión.
+    default Stream<Invoice> streamAllInvoices() {
+        return getAllInvoices().stream();
+    }
+
 }
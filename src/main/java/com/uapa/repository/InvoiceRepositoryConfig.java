@@ -0,0 +1,22 @@
+package com.uapa.repository;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoiceRepositoryConfig {
+    // Facturas por transacción en saveInvoices
+    @Builder.Default
+    int bulkChunkSize = 1000;
+    // Filas que el driver trae por viaje al recorrer streamAllInvoices
+    @Builder.Default
+    int fetchSize = 500;
+    // Si está activo, saveInvoice escribe el evento en invoice_outbox dentro de su transacción
+    @Builder.Default
+    boolean outboxEnabled = false;
+
+    public static InvoiceRepositoryConfig defaults() {
+        return InvoiceRepositoryConfig.builder().build();
+    }
+}
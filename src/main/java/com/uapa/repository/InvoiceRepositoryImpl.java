@@ -3,17 +3,63 @@ package com.uapa.repository;
 import com.uapa.config.DatabaseConnector;
 import com.uapa.model.Invoice;
 import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class InvoiceRepositoryImpl implements InvoiceRepository {
+    // Filas del listado: una por ítem (o una por factura sin ítems)
+    private static final String LINE_QUERY = "SELECT i.id, i.date, i.total, ii.id AS item_id, " +
+            "ii.product, ii.quantity, ii.price " +
+            "FROM invoices i " +
+            "LEFT JOIN invoice_items ii ON i.id = ii.invoice_id ";
+    private static final String LINE_ORDER = "ORDER BY i.date, i.id, ii.id ";
+    // Paginación por clave: una sola comparación de fila (fecha, id) que H2 resuelve
+    // buscando en idx_invoices_date_id y leyendo en el orden del índice, sin OFFSET
+    // ni ordenación posterior
+    static final String FIRST_INVOICES_QUERY = "SELECT id, date, total FROM invoices ORDER BY date, id LIMIT ?";
+    static final String NEXT_INVOICES_QUERY =
+            "SELECT id, date, total FROM invoices WHERE (date, id) > (?, ?) ORDER BY date, id LIMIT ?";
+    // Resto de ítems de una factura a partir de uno dado, por el índice de invoice_id
+    // Solo se ordena por la clave primaria de las facturas: H2 recorre su índice sin
+    // ordenar el resultado, y los ítems de cada factura llegan por
+    // idx_invoice_items_invoice_id, que a igual factura los guarda en el orden de
+    // su clave primaria. Añadir ii.id al ORDER BY obliga a leer y ordenar todo.
+    static final String STREAM_QUERY = "SELECT i.id, i.date, i.total, " +
+            "ii.product, ii.quantity, ii.price " +
+            "FROM invoices i " +
+            "LEFT JOIN invoice_items ii ON i.id = ii.invoice_id " +
+            "ORDER BY i.id";
+    static final String REMAINING_ITEMS_QUERY = "SELECT id, product, quantity, price FROM invoice_items " +
+            "WHERE invoice_id = ? AND id > ? ORDER BY id LIMIT ?";
+
     private final DatabaseConnector connector;
+    private final InvoiceRepositoryConfig config;
 
     public InvoiceRepositoryImpl(DatabaseConnector connector) {
+        this(connector, InvoiceRepositoryConfig.defaults());
+    }
+
+    public InvoiceRepositoryImpl(DatabaseConnector connector, InvoiceRepositoryConfig config) {
+        if (config.getBulkChunkSize() < 1) {
+            throw new IllegalArgumentException("bulkChunkSize must be at least 1");
+        }
         this.connector = connector;
+        this.config = config;
     }
 
     @Override
@@ -22,62 +68,156 @@ public class InvoiceRepositoryImpl implements InvoiceRepository {
             // Desactivar el auto-commit para asegurar la transacción
             connection.setAutoCommit(false);
 
-            // Insertar la factura
-            PreparedStatement psInvoice = connection.prepareStatement(
-                    "INSERT INTO invoices (id, date, total) VALUES (?, ?, ?)");
-            psInvoice.setString(1, invoice.getId());
-            psInvoice.setDate(2, java.sql.Date.valueOf(invoice.getDate()));
-            psInvoice.setDouble(3, invoice.getTotal());
-            psInvoice.executeUpdate();
-
-            // Insertar cada ítem asociado a la factura (si existen)
-            if (invoice.getItems() != null && !invoice.getItems().isEmpty()) {
-                PreparedStatement psItem = connection.prepareStatement(
-                        "INSERT INTO invoice_items (invoice_id, product, quantity, price) VALUES (?, ?, ?, ?)");
-                for (InvoiceItem item : invoice.getItems()) {
-                    psItem.setString(1, invoice.getId());
-                    psItem.setString(2, item.getProduct());
-                    psItem.setInt(3, item.getQuantity());
-                    psItem.setDouble(4, item.getPrice());
-                    psItem.addBatch();
-                }
-                psItem.executeBatch();
-                psItem.close();
-            }
+            insertInvoices(connection, List.of(invoice));
+            appendToOutbox(connection, List.of(invoice));
 
             // Confirmar la transacción
             connection.commit();
             System.out.println("[Repository] Factura guardada: " + invoice.getId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            // Se propaga el error para que el llamador sepa que la factura no se guardó
+            throw new RepositoryException("Error saving invoice " + invoice.getId(), e);
         }
     }
 
     @Override
-    public Optional<Invoice> getInvoiceById(String id) {
+    public BulkSaveReport saveInvoices(Collection<Invoice> invoices) {
+        BulkSaveReport report = new BulkSaveReport();
+        int chunkSize = config.getBulkChunkSize();
         try (Connection connection = connector.getConnection()) {
-            PreparedStatement ps = connection.prepareStatement(
-                    "SELECT * FROM invoices WHERE id = ?");
+            connection.setAutoCommit(false);
+            // Se recorre la colección sin copiarla; solo se retiene el lote actual
+            List<Invoice> chunk = new ArrayList<>(Math.min(chunkSize, invoices.size()));
+            for (Invoice invoice : invoices) {
+                chunk.add(invoice);
+                if (chunk.size() == chunkSize) {
+                    report.addChunk(saveChunk(connection, report.getChunks().size(), chunk));
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                report.addChunk(saveChunk(connection, report.getChunks().size(), chunk));
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Error in bulk invoice save", e);
+        }
+        return report;
+    }
+
+    private BulkSaveReport.ChunkReport saveChunk(Connection connection, int index, List<Invoice> chunk)
+            throws SQLException {
+        long start = System.nanoTime();
+        List<BulkSaveReport.RejectedInvoice> rejected = new ArrayList<>();
+        try {
+            insertInvoices(connection, chunk);
+            appendToOutbox(connection, chunk);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            // Reintentar una a una para identificar qué facturas del lote fueron rechazadas
+            for (Invoice invoice : chunk) {
+                try {
+                    insertInvoices(connection, List.of(invoice));
+                    appendToOutbox(connection, List.of(invoice));
+                    connection.commit();
+                } catch (SQLException | RuntimeException single) {
+                    connection.rollback();
+                    rejected.add(new BulkSaveReport.RejectedInvoice(invoice.getId(), single));
+                }
+            }
+        }
+        BulkSaveReport.ChunkReport report = BulkSaveReport.ChunkReport.builder()
+                .index(index)
+                .size(chunk.size())
+                .saved(chunk.size() - rejected.size())
+                .rejected(rejected)
+                .elapsedNanos(System.nanoTime() - start)
+                .build();
+        System.out.printf("[Repository] Lote %d: %d guardadas, %d rechazadas (%.0f facturas/s)%n",
+                index, report.getSaved(), rejected.size(), report.getInvoicesPerSecond());
+        return report;
+    }
+
+    // El evento se confirma junto con la factura o no se guarda ninguno
+    private void appendToOutbox(Connection connection, List<Invoice> invoices) throws SQLException {
+        if (config.isOutboxEnabled()) {
+            InvoiceOutbox.append(connection, invoices);
+        }
+    }
+
+    // Inserta las facturas y sus ítems con un batch JDBC por tabla, dentro de la
+    // transacción que gestione el llamador
+    static void insertInvoices(Connection connection, List<Invoice> invoices) throws SQLException {
+        try (PreparedStatement psInvoice = connection.prepareStatement(
+                "INSERT INTO invoices (id, date, total) VALUES (?, ?, ?)");
+                PreparedStatement psItem = connection.prepareStatement(
+                        "INSERT INTO invoice_items (invoice_id, product, quantity, price) VALUES (?, ?, ?, ?)")) {
+            boolean hasItems = false;
+            for (Invoice invoice : invoices) {
+                psInvoice.setString(1, invoice.getId());
+                psInvoice.setDate(2, java.sql.Date.valueOf(invoice.getDate()));
+                psInvoice.setDouble(3, invoice.getTotal());
+                psInvoice.addBatch();
+
+                // Insertar cada ítem asociado a la factura (si existen)
+                if (invoice.getItems() != null) {
+                    for (InvoiceItem item : invoice.getItems()) {
+                        psItem.setString(1, invoice.getId());
+                        psItem.setString(2, item.getProduct());
+                        psItem.setInt(3, item.getQuantity());
+                        psItem.setDouble(4, item.getPrice());
+                        psItem.addBatch();
+                        hasItems = true;
+                    }
+                }
+            }
+            psInvoice.executeBatch();
+            if (hasItems) {
+                psItem.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public Optional<Invoice> getInvoiceById(String id) {
+        // Factura e ítems en una sola consulta; los ítems se localizan por el índice de invoice_id
+        String query = "SELECT i.id, i.date, i.total, ii.product, ii.quantity, ii.price " +
+                "FROM invoices i " +
+                "LEFT JOIN invoice_items ii ON i.id = ii.invoice_id " +
+                "WHERE i.id = ? " +
+                "ORDER BY ii._ROWID_";
+        try (Connection connection = connector.getConnection();
+                PreparedStatement ps = connection.prepareStatement(query)) {
             ps.setString(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                Invoice invoice = Invoice.builder()
-                        .id(rs.getString("id"))
-                        .date(rs.getDate("date").toLocalDate())
-                        .total(rs.getDouble("total"))
-                        // Se omite la lista de items para simplificar.
-                        .build();
-                return Optional.of(invoice);
+            try (ResultSet rs = ps.executeQuery()) {
+                Invoice invoice = null;
+                while (rs.next()) {
+                    if (invoice == null) {
+                        invoice = Invoice.builder()
+                                .id(rs.getString("id"))
+                                .date(rs.getDate("date").toLocalDate())
+                                .total(rs.getDouble("total"))
+                                .items(new ArrayList<>())
+                                .build();
+                    }
+                    String product = rs.getString("product");
+                    if (product != null) {
+                        invoice.getItems().add(InvoiceItem.builder()
+                                .product(product)
+                                .quantity(rs.getInt("quantity"))
+                                .price(rs.getDouble("price"))
+                                .build());
+                    }
+                }
+                return Optional.ofNullable(invoice);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new RepositoryException("Error loading invoice " + id, e);
         }
-        return Optional.empty();
     }
 
     @Override
     public List<Invoice> getAllInvoices() {
-        List<Invoice> invoices = new ArrayList<>();
         String query = "SELECT i.id, i.date, i.total, " +
                 "ii.product, ii.quantity, ii.price " +
                 "FROM invoices i " +
@@ -114,11 +254,301 @@ public class InvoiceRepositoryImpl implements InvoiceRepository {
                     invoice.getItems().add(item);
                 }
             }
-            invoices.addAll(invoiceMap.values());
+            return new ArrayList<>(invoiceMap.values());
+        } catch (SQLException e) {
+            // Una lista parcial se confundiría con el listado completo
+            throw new RepositoryException("Error loading invoices", e);
+        }
+    }
+
+    @Override
+    public InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        InvoicePages.checkLimit(limit);
+        try (Connection connection = connector.getConnection()) {
+            Map<String, Invoice> invoiceMap = seekInvoices(connection, afterKey, limit + 1);
+            loadItems(connection, invoiceMap);
+            return InvoicePages.of(new ArrayList<>(invoiceMap.values()), limit);
+        } catch (SQLException e) {
+            throw new RepositoryException("Error loading invoice page", e);
+        }
+    }
+
+    // Las primeras count facturas posteriores a afterKey (null = desde el principio)
+    private static Map<String, Invoice> seekInvoices(Connection connection, InvoicePageKey afterKey, int count)
+            throws SQLException {
+        String query = afterKey == null ? FIRST_INVOICES_QUERY : NEXT_INVOICES_QUERY;
+        Map<String, Invoice> invoiceMap = new LinkedHashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int param = 1;
+            if (afterKey != null) {
+                ps.setDate(param++, java.sql.Date.valueOf(afterKey.getDate()));
+                ps.setString(param++, afterKey.getId());
+            }
+            ps.setInt(param, count);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Invoice invoice = Invoice.builder()
+                            .id(rs.getString("id"))
+                            .date(rs.getDate("date").toLocalDate())
+                            .total(rs.getDouble("total"))
+                            .items(new ArrayList<>())
+                            .build();
+                    invoiceMap.put(invoice.getId(), invoice);
+                }
+            }
+        }
+        return invoiceMap;
+    }
+
+    // Carga en una sola consulta los ítems de las facturas indicadas
+    private static void loadItems(Connection connection, Map<String, Invoice> invoiceMap) throws SQLException {
+        if (invoiceMap.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = prepareItemQuery(connection, invoiceMap.keySet());
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                invoiceMap.get(rs.getString("invoice_id")).getItems().add(InvoiceItem.builder()
+                        .product(rs.getString("product"))
+                        .quantity(rs.getInt("quantity"))
+                        .price(rs.getDouble("price"))
+                        .build());
+            }
+        }
+    }
+
+    // Ítems de varias facturas por el índice de invoice_id, en el orden de su clave primaria
+    private static PreparedStatement prepareItemQuery(Connection connection, Collection<String> invoiceIds)
+            throws SQLException {
+        StringBuilder query = new StringBuilder(
+                "SELECT id, invoice_id, product, quantity, price FROM invoice_items WHERE invoice_id IN (");
+        for (int i = 0; i < invoiceIds.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(") ORDER BY invoice_id, id");
+        PreparedStatement ps = connection.prepareStatement(query.toString());
+        int param = 1;
+        for (String id : invoiceIds) {
+            ps.setString(param++, id);
+        }
+        return ps;
+    }
+
+    @Override
+    public long countInvoiceLines() {
+        try (Connection connection = connector.getConnection();
+                PreparedStatement ps = connection.prepareStatement(
+                        "SELECT COUNT(*) FROM invoices i LEFT JOIN invoice_items ii ON i.id = ii.invoice_id");
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new RepositoryException("Error counting invoice lines", e);
+        }
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLines(long offset, int limit) {
+        try (Connection connection = connector.getConnection();
+                PreparedStatement ps = connection.prepareStatement(LINE_QUERY + LINE_ORDER + "LIMIT ? OFFSET ?")) {
+            ps.setInt(1, limit);
+            ps.setLong(2, offset);
+            return readLines(ps);
+        } catch (SQLException e) {
+            throw new RepositoryException("Error loading invoice lines", e);
+        }
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit) {
+        // Continúa justo después de la última fila conocida sin recorrer las anteriores:
+        // primero los ítems que queden de su factura y después las facturas siguientes
+        try (Connection connection = connector.getConnection()) {
+            List<InvoiceLine> lines = new ArrayList<>();
+            InvoicePageKey afterKey = null;
+            if (last != null) {
+                afterKey = new InvoicePageKey(last.getDate(), last.getInvoiceId());
+                if (last.getItemId() != null) {
+                    readRemainingItems(connection, last, limit, lines);
+                }
+            }
+            if (lines.size() < limit) {
+                // Cada factura aporta al menos una fila, así que no hacen falta más facturas que filas
+                Map<String, Invoice> invoiceMap = seekInvoices(connection, afterKey, limit - lines.size());
+                appendLines(connection, invoiceMap, lines);
+            }
+            return lines.size() > limit ? new ArrayList<>(lines.subList(0, limit)) : lines;
+        } catch (SQLException e) {
+            throw new RepositoryException("Error loading invoice lines", e);
+        }
+    }
+
+    // Ítems de la factura de last posteriores a su ítem
+    private static void readRemainingItems(Connection connection, InvoiceLine last, int limit, List<InvoiceLine> lines)
+            throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(REMAINING_ITEMS_QUERY)) {
+            ps.setString(1, last.getInvoiceId());
+            ps.setLong(2, last.getItemId());
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(InvoiceLine.builder()
+                            .invoiceId(last.getInvoiceId())
+                            .date(last.getDate())
+                            .invoiceTotal(last.getInvoiceTotal())
+                            .itemId(rs.getLong("id"))
+                            .product(rs.getString("product"))
+                            .quantity(rs.getInt("quantity"))
+                            .price(rs.getDouble("price"))
+                            .build());
+                }
+            }
+        }
+    }
+
+    // Filas de las facturas indicadas, en su orden; una sola fila para las que no tienen ítems
+    private static void appendLines(Connection connection, Map<String, Invoice> invoiceMap, List<InvoiceLine> lines)
+            throws SQLException {
+        if (invoiceMap.isEmpty()) {
+            return;
+        }
+        Map<String, List<InvoiceLine>> itemLines = new HashMap<>();
+        try (PreparedStatement ps = prepareItemQuery(connection, invoiceMap.keySet());
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Invoice invoice = invoiceMap.get(rs.getString("invoice_id"));
+                itemLines.computeIfAbsent(invoice.getId(), id -> new ArrayList<>()).add(InvoiceLine.builder()
+                        .invoiceId(invoice.getId())
+                        .date(invoice.getDate())
+                        .invoiceTotal(invoice.getTotal())
+                        .itemId(rs.getLong("id"))
+                        .product(rs.getString("product"))
+                        .quantity(rs.getInt("quantity"))
+                        .price(rs.getDouble("price"))
+                        .build());
+            }
+        }
+        for (Invoice invoice : invoiceMap.values()) {
+            List<InvoiceLine> invoiceLines = itemLines.get(invoice.getId());
+            if (invoiceLines != null) {
+                lines.addAll(invoiceLines);
+            } else {
+                lines.add(InvoiceLine.builder()
+                        .invoiceId(invoice.getId())
+                        .date(invoice.getDate())
+                        .invoiceTotal(invoice.getTotal())
+                        .build());
+            }
+        }
+    }
+
+    private static List<InvoiceLine> readLines(PreparedStatement ps) throws SQLException {
+        List<InvoiceLine> lines = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                long item = rs.getLong("item_id");
+                Long itemId = rs.wasNull() ? null : item;
+                lines.add(InvoiceLine.builder()
+                        .invoiceId(rs.getString("id"))
+                        .date(rs.getDate("date").toLocalDate())
+                        .invoiceTotal(rs.getDouble("total"))
+                        .itemId(itemId)
+                        .product(rs.getString("product"))
+                        .quantity(rs.getInt("quantity"))
+                        .price(rs.getDouble("price"))
+                        .build());
+            }
+        }
+        return lines;
+    }
+
+    @Override
+    public Stream<Invoice> streamAllInvoices() {
+        Connection connection = connector.getConnection();
+        // La conexión puede volver a un pool: el modo perezoso se desactiva al cerrar
+        AutoCloseable eagerAgain = () -> setLazyExecution(connection, false);
+        PreparedStatement ps = null;
+        try {
+            // En modo embebido H2 ignora setFetchSize y materializa el resultado
+            // completo; con la ejecución perezosa lee las filas a medida que se piden
+            setLazyExecution(connection, true);
+            ps = connection.prepareStatement(STREAM_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(config.getFetchSize());
+            ResultSet rs = ps.executeQuery();
+            PreparedStatement statement = ps;
+            return StreamSupport.stream(new InvoiceSpliterator(rs), false)
+                    .onClose(() -> closeQuietly(rs, statement, eagerAgain, connection));
         } catch (SQLException e) {
-            e.printStackTrace();
+            closeQuietly(ps, eagerAgain, connection);
+            throw new RepositoryException("Error streaming invoices", e);
+        }
+    }
+
+    private static void setLazyExecution(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? 1 : 0));
         }
-        return invoices;
     }
 
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                // Se intenta cerrar el resto de recursos igualmente
+            }
+        }
+    }
+
+    // Agrupa las filas consecutivas de una misma factura; como el cursor viene
+    // ordenado por id, cada factura se emite en cuanto aparece la siguiente
+    private static final class InvoiceSpliterator extends Spliterators.AbstractSpliterator<Invoice> {
+        private final ResultSet rs;
+        private boolean started;
+        private boolean hasRow;
+
+        private InvoiceSpliterator(ResultSet rs) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Invoice> action) {
+            try {
+                if (!started) {
+                    hasRow = rs.next();
+                    started = true;
+                }
+                if (!hasRow) {
+                    return false;
+                }
+                String id = rs.getString("id");
+                Invoice invoice = Invoice.builder()
+                        .id(id)
+                        .date(rs.getDate("date").toLocalDate())
+                        .total(rs.getDouble("total"))
+                        .items(new ArrayList<>())
+                        .build();
+                do {
+                    String product = rs.getString("product");
+                    if (product != null) {
+                        invoice.getItems().add(InvoiceItem.builder()
+                                .product(product)
+                                .quantity(rs.getInt("quantity"))
+                                .price(rs.getDouble("price"))
+                                .build());
+                    }
+                    hasRow = rs.next();
+                } while (hasRow && id.equals(rs.getString("id")));
+                action.accept(invoice);
+                return true;
+            } catch (SQLException e) {
+                throw new RepositoryException("Error reading invoice stream", e);
+            }
+        }
+    }
 }
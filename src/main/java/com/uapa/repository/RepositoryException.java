@@ -0,0 +1,8 @@
+package com.uapa.repository;
+
+// Error de acceso a datos; conserva la SQLException original como causa
+public class RepositoryException extends RuntimeException {
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
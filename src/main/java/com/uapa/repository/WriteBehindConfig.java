@@ -0,0 +1,35 @@
+package com.uapa.repository;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class WriteBehindConfig {
+    // Espera máxima del flusher antes de aplicar un lote incompleto
+    @Builder.Default
+    Duration flushInterval = Duration.ofMillis(200);
+    // Facturas aplicadas a la base de datos en cada lote
+    @Builder.Default
+    int maxBatchSize = 1000;
+    // fsync tras cada escritura en el diario; sin él un corte de luz puede perder facturas
+    @Builder.Default
+    boolean syncOnAppend = true;
+    // Facturas pendientes a partir de las cuales se rechazan nuevas escrituras, para
+    // que una base de datos caída no haga crecer el diario sin límite
+    @Builder.Default
+    int maxPendingInvoices = 100_000;
+    // Espera máxima entre reintentos cuando la base de datos falla; empieza en
+    // flushInterval y se duplica con cada fallo seguido
+    @Builder.Default
+    Duration maxRetryBackoff = Duration.ofSeconds(30);
+    // Tamaño a partir del cual el diario se vacía en cuanto está todo aplicado
+    @Builder.Default
+    long compactThresholdBytes = 16L * 1024 * 1024;
+
+    public static WriteBehindConfig defaults() {
+        return WriteBehindConfig.builder().build();
+    }
+}
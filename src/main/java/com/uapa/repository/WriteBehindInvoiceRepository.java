@@ -0,0 +1,368 @@
+package com.uapa.repository;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de escritura diferida para picos de carga. {@link #saveInvoice}
+ * vuelve en cuanto la factura está en un diario local con fsync; un hilo
+ * aplica después el diario a la base de datos en lotes grandes mediante
+ * {@link InvoiceRepository#saveInvoices(Collection)} del repositorio decorado.
+ *
+ * Al arrancar se aplican las facturas que quedaron en el diario sin llegar a
+ * la base de datos. Si el proceso cayó entre la confirmación de un lote y la
+ * actualización del checkpoint, esas facturas se reintentan y la base de
+ * datos las rechaza por id duplicado, así que no se guardan dos veces.
+ *
+ * {@link #getInvoiceById(String)} ve las facturas pendientes; los listados y
+ * la paginación solo las muestran cuando se han aplicado.
+ *
+ * Si la base de datos rechaza una factura al aplicarla (por ejemplo, un id
+ * que ya tenía otra factura), el futuro de {@link #saveInvoiceAsync(Invoice)}
+ * falla con {@link RepositoryException} y la factura se guarda en el fichero
+ * de rechazos ({@link #getRejectedInvoices()}), que sobrevive a reinicios.
+ * Quien necesite saber que la factura está en la base de datos (por ejemplo,
+ * para publicar su evento) debe esperar a ese futuro.
+ *
+ * Si la base de datos no está disponible, el flusher reintenta con una espera
+ * que se duplica en cada fallo, y las escrituras se rechazan con
+ * {@link RepositoryException} en cuanto hay
+ * {@link WriteBehindConfig#getMaxPendingInvoices()} facturas pendientes.
+ */
+public class WriteBehindInvoiceRepository implements InvoiceRepository, AutoCloseable {
+    private final InvoiceRepository delegate;
+    private final WriteBehindConfig config;
+    private final WriteBehindJournal journal;
+    // Orden del diario; solo el flusher retira entradas
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Invoice> pendingById = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Object appendLock = new Object();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final long replayed;
+
+    public WriteBehindInvoiceRepository(InvoiceRepository delegate, Path journalDirectory) {
+        this(delegate, journalDirectory, WriteBehindConfig.defaults());
+    }
+
+    public WriteBehindInvoiceRepository(InvoiceRepository delegate, Path journalDirectory, WriteBehindConfig config) {
+        if (config.getMaxBatchSize() < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        if (config.getMaxPendingInvoices() < 1) {
+            throw new IllegalArgumentException("maxPendingInvoices must be at least 1");
+        }
+        this.delegate = delegate;
+        this.config = config;
+        this.journal = new WriteBehindJournal(journalDirectory, config);
+        List<WriteBehindJournal.Entry> recovered = journal.getRecovered();
+        for (WriteBehindJournal.Entry entry : recovered) {
+            enqueue(entry.invoice, entry.end);
+        }
+        this.replayed = recovered.size();
+        if (replayed > 0) {
+            System.out.println("[Repository] Aplicando " + replayed + " facturas pendientes del diario");
+            flushPending();
+        }
+        this.flusher = new Thread(this::flushLoop, "invoice-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Vuelve cuando la factura está en el diario, no en la base de datos
+    @Override
+    public void saveInvoice(Invoice invoice) {
+        append(List.of(invoice));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveInvoiceAsync(Invoice invoice) {
+        return append(List.of(invoice)).get(0);
+    }
+
+    // El lote entero se escribe en el diario con un solo fsync
+    @Override
+    public BulkSaveReport saveInvoices(Collection<Invoice> invoices) {
+        long start = System.nanoTime();
+        List<Invoice> batch = new ArrayList<>(invoices);
+        List<BulkSaveReport.RejectedInvoice> duplicates = new ArrayList<>();
+        for (Iterator<Invoice> it = batch.iterator(); it.hasNext();) {
+            Invoice invoice = it.next();
+            if (pendingById.containsKey(invoice.getId())) {
+                duplicates.add(new BulkSaveReport.RejectedInvoice(invoice.getId(),
+                        new RepositoryException("Invoice " + invoice.getId() + " is already pending", null)));
+                it.remove();
+            }
+        }
+        if (!batch.isEmpty()) {
+            append(batch);
+        }
+        BulkSaveReport report = new BulkSaveReport();
+        report.addChunk(BulkSaveReport.ChunkReport.builder()
+                .index(0)
+                .size(invoices.size())
+                .saved(batch.size())
+                .rejected(duplicates)
+                .elapsedNanos(System.nanoTime() - start)
+                .build());
+        return report;
+    }
+
+    @Override
+    public Optional<Invoice> getInvoiceById(String id) {
+        Invoice pending = pendingById.get(id);
+        return pending != null ? Optional.of(pending) : delegate.getInvoiceById(id);
+    }
+
+    @Override
+    public List<Invoice> getAllInvoices() {
+        return delegate.getAllInvoices();
+    }
+
+    @Override
+    public InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        return delegate.findPage(afterKey, limit);
+    }
+
+    @Override
+    public long countInvoiceLines() {
+        return delegate.countInvoiceLines();
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLines(long offset, int limit) {
+        return delegate.findInvoiceLines(offset, limit);
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit) {
+        return delegate.findInvoiceLinesAfter(last, limit);
+    }
+
+    @Override
+    public Stream<Invoice> streamAllInvoices() {
+        return delegate.streamAllInvoices();
+    }
+
+    // Facturas confirmadas al llamador que la base de datos rechazó al aplicarlas
+    public List<Invoice> getRejectedInvoices() {
+        return journal.readRejected();
+    }
+
+    public WriteBehindStats getStats() {
+        Pending oldest = queue.peek();
+        return WriteBehindStats.builder()
+                .pendingCount(pendingCount.get())
+                .flushLagMillis(oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.appendedAt))
+                .journalBytes(journal.getSizeBytes())
+                .unflushedBytes(journal.getUnflushedBytes())
+                .flushedCount(flushed.sum())
+                .rejectedCount(rejected.sum())
+                .batchCount(batches.sum())
+                .replayedCount(replayed)
+                .build();
+    }
+
+    // Aplica todo lo pendiente y cierra el diario; lo que no se pueda aplicar se recupera al reabrirlo
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushPending();
+        journal.close();
+        for (Pending pending : queue) {
+            pending.applied.completeExceptionally(new RepositoryException("Invoice " + pending.invoice.getId()
+                    + " is still in the write-behind journal; it is applied on the next start", null));
+        }
+    }
+
+    private List<CompletableFuture<Void>> append(List<Invoice> invoices) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind repository is closed");
+        }
+        List<CompletableFuture<Void>> applied = new ArrayList<>(invoices.size());
+        synchronized (appendLock) {
+            // Las facturas pendientes ocupan memoria además del diario
+            if (pendingCount.get() + invoices.size() > config.getMaxPendingInvoices()) {
+                throw new RepositoryException("Write-behind journal is full: " + pendingCount.get()
+                        + " invoices are waiting for the database", null);
+            }
+            for (Invoice invoice : invoices) {
+                if (pendingById.containsKey(invoice.getId())) {
+                    throw new RepositoryException("Invoice " + invoice.getId() + " is already pending", null);
+                }
+            }
+            long[] ends;
+            try {
+                ends = journal.append(invoices);
+            } catch (RuntimeException e) {
+                throw new RepositoryException("Error writing invoices to the write-behind journal", e);
+            }
+            for (int i = 0; i < invoices.size(); i++) {
+                applied.add(enqueue(invoices.get(i), ends[i]));
+            }
+        }
+        if (pendingCount.get() >= config.getMaxBatchSize()) {
+            LockSupport.unpark(flusher);
+        }
+        return applied;
+    }
+
+    private CompletableFuture<Void> enqueue(Invoice invoice, long end) {
+        Pending pending = new Pending(invoice, end, System.nanoTime());
+        pendingById.put(invoice.getId(), invoice);
+        queue.add(pending);
+        pendingCount.incrementAndGet();
+        return pending.applied;
+    }
+
+    private void flushLoop() {
+        long backoffNanos = 0;
+        while (running) {
+            if (backoffNanos > 0) {
+                // Tras un fallo se espera el plazo entero aunque append() despierte al hilo
+                long deadline = System.nanoTime() + backoffNanos;
+                long remaining;
+                while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } else if (pendingCount.get() < config.getMaxBatchSize()) {
+                LockSupport.parkNanos(this, config.getFlushInterval().toNanos());
+            }
+            if (flushPending()) {
+                backoffNanos = 0;
+            } else {
+                backoffNanos = backoffNanos == 0
+                        ? config.getFlushInterval().toNanos()
+                        : Math.min(backoffNanos * 2, config.getMaxRetryBackoff().toNanos());
+            }
+        }
+    }
+
+    // Aplica lotes mientras quede trabajo; false si la base de datos falla y hay que reintentar
+    private synchronized boolean flushPending() {
+        while (!queue.isEmpty()) {
+            List<Pending> batch = new ArrayList<>(Math.min(config.getMaxBatchSize(), pendingCount.get()));
+            List<Invoice> invoices = new ArrayList<>(batch.size());
+            for (Pending pending : queue) {
+                if (batch.size() == config.getMaxBatchSize()) {
+                    break;
+                }
+                batch.add(pending);
+                invoices.add(pending.invoice);
+            }
+            BulkSaveReport report;
+            try {
+                report = delegate.saveInvoices(invoices);
+            } catch (RuntimeException e) {
+                System.err.println("[Repository] No se pudo aplicar el diario diferido: " + e.getMessage());
+                return false;
+            }
+            Map<String, Exception> rejections = new HashMap<>();
+            for (BulkSaveReport.RejectedInvoice rejectedInvoice : report.getRejected()) {
+                rejections.put(rejectedInvoice.getInvoiceId(), rejectedInvoice.getCause());
+            }
+            List<Invoice> deadLetters = new ArrayList<>();
+            for (Pending pending : batch) {
+                if (rejections.containsKey(pending.invoice.getId()) && alreadyApplied(pending.invoice)) {
+                    // Se aplicó antes de una caída, sin llegar a avanzar el checkpoint
+                    rejections.remove(pending.invoice.getId());
+                } else if (rejections.containsKey(pending.invoice.getId())) {
+                    deadLetters.add(pending.invoice);
+                }
+            }
+            try {
+                // Antes del checkpoint: tras él, la factura ya no estaría en el diario
+                if (!deadLetters.isEmpty()) {
+                    journal.appendRejected(deadLetters);
+                }
+                journal.checkpoint(batch.get(batch.size() - 1).end);
+            } catch (RuntimeException e) {
+                System.err.println("[Repository] No se pudo avanzar el diario diferido: " + e.getMessage());
+                return false;
+            }
+            for (Pending pending : batch) {
+                queue.poll();
+                pendingById.remove(pending.invoice.getId(), pending.invoice);
+                Exception cause = rejections.get(pending.invoice.getId());
+                if (cause == null) {
+                    pending.applied.complete(null);
+                } else {
+                    System.err.println("[Repository] Factura del diario rechazada: " + pending.invoice.getId()
+                            + " (" + cause + ")");
+                    pending.applied.completeExceptionally(new RepositoryException("Invoice "
+                            + pending.invoice.getId() + " was rejected by the database after being journaled", cause));
+                }
+            }
+            pendingCount.addAndGet(-batch.size());
+            flushed.add(batch.size() - deadLetters.size());
+            rejected.add(deadLetters.size());
+            batches.increment();
+        }
+        return true;
+    }
+
+    // Una factura idéntica en la base de datos es una repetición tras una caída, no un rechazo
+    private boolean alreadyApplied(Invoice invoice) {
+        try {
+            return delegate.getInvoiceById(invoice.getId())
+                    .map(stored -> sameContent(stored, invoice))
+                    .orElse(false);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static boolean sameContent(Invoice stored, Invoice journaled) {
+        List<InvoiceItem> storedItems = stored.getItems() == null ? List.of() : stored.getItems();
+        List<InvoiceItem> journaledItems = journaled.getItems() == null ? List.of() : journaled.getItems();
+        return Objects.equals(stored.getDate(), journaled.getDate())
+                && Double.compare(stored.getTotal(), journaled.getTotal()) == 0
+                && storedItems.equals(journaledItems);
+    }
+
+    private static final class Pending {
+        private final Invoice invoice;
+        private final long end;
+        private final long appendedAt;
+        // Se completa al aplicarse en la base de datos, o falla si esta la rechaza
+        private final CompletableFuture<Void> applied = new CompletableFuture<>();
+
+        private Pending(Invoice invoice, long end, long appendedAt) {
+            this.invoice = invoice;
+            this.end = end;
+            this.appendedAt = appendedAt;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.uapa.repository;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Fichero de escritura anticipada del repositorio diferido. Cada registro es
+ * longitud (int), CRC32 (int) y la factura serializada; un fichero aparte
+ * guarda hasta qué posición se ha aplicado ya a la base de datos. Al abrirlo
+ * se descarta la cola de un registro a medio escribir.
+ *
+ * Las facturas que la base de datos rechaza al aplicarlas se copian, con el
+ * mismo formato, a un fichero de rechazos que no se vacía nunca: el llamador
+ * ya recibió la confirmación y no deben perderse en silencio.
+ */
+final class WriteBehindJournal implements AutoCloseable {
+    private static final int HEADER_BYTES = 8;
+
+    private final FileChannel channel;
+    private final FileChannel checkpointChannel;
+    private final FileChannel rejectedChannel;
+    private final FileLock lock;
+    private final boolean syncOnAppend;
+    private final long compactThresholdBytes;
+    // Protegidos por el monitor del diario
+    private long writePosition;
+    private long checkpoint;
+    private final List<Entry> recovered;
+
+    WriteBehindJournal(Path directory, WriteBehindConfig config) {
+        this.syncOnAppend = config.isSyncOnAppend();
+        this.compactThresholdBytes = config.getCompactThresholdBytes();
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(directory.resolve("invoices.wal"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            lock = tryLock(channel);
+            if (lock == null) {
+                channel.close();
+                throw new IllegalStateException("Write-behind journal is already in use: " + directory);
+            }
+            checkpointChannel = FileChannel.open(directory.resolve("invoices.checkpoint"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            rejectedChannel = FileChannel.open(directory.resolve("invoices.rejected"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            checkpoint = readCheckpoint();
+            recovered = recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-behind journal in " + directory, e);
+        }
+    }
+
+    // Registros escritos y no aplicados antes del último cierre
+    List<Entry> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Añade las facturas al final del diario con una sola escritura (y un
+     * solo fsync) y devuelve la posición final de cada una.
+     */
+    synchronized long[] append(List<Invoice> invoices) {
+        long[] ends = new long[invoices.size()];
+        ByteBuffer buffer = encode(invoices, writePosition, ends);
+        int total = buffer.remaining();
+        try {
+            write(channel, buffer, writePosition);
+            if (syncOnAppend) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to write-behind journal", e);
+        }
+        writePosition += total;
+        return ends;
+    }
+
+    // Siempre con fsync: se escribe antes de avanzar el checkpoint sobre estas facturas
+    synchronized void appendRejected(List<Invoice> invoices) {
+        ByteBuffer buffer = encode(invoices, 0, new long[invoices.size()]);
+        try {
+            write(rejectedChannel, buffer, rejectedChannel.size());
+            rejectedChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to write-behind rejected file", e);
+        }
+    }
+
+    synchronized List<Invoice> readRejected() {
+        List<Invoice> invoices = new ArrayList<>();
+        try {
+            read(rejectedChannel, 0, (invoice, end) -> invoices.add(invoice));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read write-behind rejected file", e);
+        }
+        return invoices;
+    }
+
+    /**
+     * Marca como aplicado todo lo anterior a {@code position}. Si ya no queda
+     * nada pendiente y el fichero es grande, se vacía.
+     */
+    synchronized void checkpoint(long position) {
+        try {
+            if (position == writePosition && writePosition >= compactThresholdBytes) {
+                // El checkpoint 0 se guarda antes de vaciar el fichero: si el proceso cae
+                // entre medias solo se repiten facturas ya aplicadas, nunca se salta una nueva
+                writeCheckpoint(0);
+                channel.truncate(0);
+                channel.force(true);
+                writePosition = 0;
+            } else {
+                writeCheckpoint(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot update write-behind checkpoint", e);
+        }
+    }
+
+    synchronized long getSizeBytes() {
+        return writePosition;
+    }
+
+    synchronized long getUnflushedBytes() {
+        return writePosition - checkpoint;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            lock.release();
+            channel.close();
+            checkpointChannel.close();
+            rejectedChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Entry> recover() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long size = channel.size();
+        if (checkpoint > size) {
+            // Un checkpoint más allá del final no corresponde a este fichero (p. ej. una
+            // versión anterior vació el diario sin guardar el checkpoint 0): se lee entero
+            System.err.println("[Repository] Diario diferido: checkpoint " + checkpoint
+                    + " fuera del fichero (" + size + " bytes), se aplica desde el principio");
+            writeCheckpoint(0);
+        }
+        long position = read(channel, checkpoint, (invoice, end) -> entries.add(new Entry(invoice, end)));
+        if (position < size) {
+            System.err.println("[Repository] Diario diferido: se descartan " + (size - position)
+                    + " bytes de un registro incompleto");
+            channel.truncate(position);
+        }
+        writePosition = position;
+        return entries;
+    }
+
+    // Registros consecutivos con la posición final de cada uno en el fichero
+    private static ByteBuffer encode(List<Invoice> invoices, long startPosition, long[] ends) {
+        List<byte[]> payloads = new ArrayList<>(invoices.size());
+        int total = 0;
+        for (Invoice invoice : invoices) {
+            byte[] payload = InvoiceCodec.encode(invoice);
+            payloads.add(payload);
+            total += HEADER_BYTES + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < payloads.size(); i++) {
+            byte[] payload = payloads.get(i);
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            ends[i] = startPosition + buffer.position();
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write(FileChannel to, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += to.write(buffer, position);
+        }
+    }
+
+    // Lee registros desde position hasta el final o el primero incompleto; devuelve dónde se detuvo
+    private static long read(FileChannel from, long position, BiConsumer<Invoice, Long> consumer) throws IOException {
+        long size = from.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(from, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(from, payload, position + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+            consumer.accept(InvoiceCodec.decode(payload.array()), position);
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel from, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (from.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of write-behind journal");
+            }
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (checkpointChannel.size() < Long.BYTES) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        readFully(checkpointChannel, buffer, 0);
+        return buffer.getLong(0);
+    }
+
+    private void writeCheckpoint(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(position);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            checkpointChannel.write(buffer, buffer.position());
+        }
+        checkpointChannel.force(false);
+        checkpoint = position;
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    static final class Entry {
+        final Invoice invoice;
+        // Posición del diario justo después de este registro
+        final long end;
+
+        Entry(Invoice invoice, long end) {
+            this.invoice = invoice;
+            this.end = end;
+        }
+    }
+}
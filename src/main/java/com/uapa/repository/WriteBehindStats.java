@@ -0,0 +1,21 @@
+package com.uapa.repository;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class WriteBehindStats {
+    // Facturas en el diario que aún no están en la base de datos
+    int pendingCount;
+    // Antigüedad de la factura pendiente más antigua
+    long flushLagMillis;
+    long journalBytes;
+    long unflushedBytes;
+    long flushedCount;
+    // Facturas que la base de datos rechazó al aplicarlas (p. ej. id duplicado); están en el fichero de rechazos
+    long rejectedCount;
+    long batchCount;
+    // Facturas recuperadas del diario al arrancar
+    long replayedCount;
+}
@@ -0,0 +1,21 @@
+package com.uapa.service;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class IdempotencyConfig {
+    // Claves recordadas como máximo; al superarlo se descartan las más antiguas
+    @Builder.Default
+    int maxEntries = 10_000;
+    // Tiempo durante el que un reintento recibe el resultado original
+    @Builder.Default
+    Duration ttl = Duration.ofMinutes(10);
+
+    public static IdempotencyConfig defaults() {
+        return IdempotencyConfig.builder().build();
+    }
+}
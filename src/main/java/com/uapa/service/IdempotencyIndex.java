@@ -0,0 +1,143 @@
+package com.uapa.service;
+
+import com.uapa.model.Invoice;
+
+import java.time.Clock;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Índice en memoria de claves de idempotencia. La primera petición con una
+ * clave ejecuta el guardado; las repetidas mientras la entrada siga viva
+ * reciben el mismo futuro, tanto si el guardado sigue en curso como si ya
+ * terminó. Las entradas caducan tras el TTL y el índice no supera
+ * {@code maxEntries}: al llenarse se descartan primero las caducadas y luego
+ * las más antiguas. Los guardados fallidos se olvidan para permitir reintentos.
+ */
+public class IdempotencyIndex {
+    private final IdempotencyConfig config;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Orden de inserción, para caducar y desalojar desde la más antigua
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    // Entradas olvidadas que pueden seguir en insertionOrder (aproximado: solo decide cuándo compactar)
+    private final AtomicInteger forgotten = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyIndex(IdempotencyConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    IdempotencyIndex(IdempotencyConfig config, Clock clock) {
+        if (config.getMaxEntries() < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * Devuelve el resultado registrado para la clave o, si no hay ninguno
+     * vigente, registra y arranca el que produce {@code action}.
+     */
+    public CompletableFuture<Invoice> computeIfAbsent(String key,
+            Supplier<CompletableFuture<Invoice>> action) {
+        long now = clock.millis();
+        CompletableFuture<Invoice> placeholder = new CompletableFuture<>();
+        Entry created = new Entry(key, placeholder, now + config.getTtl().toMillis());
+        Entry current = entries.compute(key, (k, existing) ->
+                existing != null && existing.expiresAt > now ? existing : created);
+        if (current != created) {
+            hits.increment();
+            return current.result;
+        }
+        insertionOrder.add(created);
+        evict(now);
+
+        CompletableFuture<Invoice> started;
+        try {
+            started = action.get();
+        } catch (RuntimeException e) {
+            // Por ejemplo, el ejecutor rechazó la tarea: quien reintente debe poder volver a enviarla
+            forget(created);
+            placeholder.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((invoice, error) -> {
+            if (error != null) {
+                forget(created);
+                placeholder.completeExceptionally(error);
+            } else {
+                placeholder.complete(invoice);
+            }
+        });
+        return placeholder;
+    }
+
+    // Sacarla del orden de inserción aquí costaría recorrer la cola en cada fallo.
+    // Se marca como olvidada: evict() la salta al llegar a la cabeza y, para que una
+    // racha de fallos detrás de una entrada viva no haga crecer la cola, se compacta
+    // de una pasada cada maxEntries olvidos
+    private void forget(Entry entry) {
+        entry.forgotten = true;
+        entries.remove(entry.key, entry);
+        if (forgotten.incrementAndGet() > config.getMaxEntries()) {
+            forgotten.set(0);
+            insertionOrder.removeIf(e -> e.forgotten);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Peticiones respondidas con un resultado ya registrado
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    int trackedCount() {
+        return insertionOrder.size();
+    }
+
+    private void evict(long now) {
+        Entry eldest;
+        while ((eldest = insertionOrder.peek()) != null) {
+            if (eldest.forgotten) {
+                insertionOrder.remove(eldest);
+                continue;
+            }
+            boolean expired = eldest.expiresAt <= now;
+            if (!expired && entries.size() <= config.getMaxEntries()) {
+                return;
+            }
+            // Otro hilo puede haberla desalojado ya; solo cuenta quien la saca
+            if (insertionOrder.remove(eldest) && entries.remove(eldest.key, eldest) && !expired) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final CompletableFuture<Invoice> result;
+        private final long expiresAt;
+        private volatile boolean forgotten;
+
+        private Entry(String key, CompletableFuture<Invoice> result, long expiresAt) {
+            this.key = key;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.uapa.service;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Motor de ejecución acotado para el procesamiento de facturas.
+ * Limita las tareas en vuelo (en ejecución + en cola) y expone métricas
+ * para dimensionar el pool.
+ *
+ * Las tareas esperan en un carril por prioridad y cada hilo libre toma la
+ * siguiente del carril más prioritario. Para que los lotes no se queden sin
+ * servicio, el carril BULK recibe al menos {@code bulkShare} de los turnos
+ * mientras tenga trabajo pendiente. El carril interactivo tiene sus propias
+ * plazas, así que una importación que llena la cola no bloquea al usuario.
+ */
+public class InvoiceExecutor {
+    private final InvoiceExecutorConfig config;
+    private final ExecutorService delegate;
+    // Un permiso por tarea en vuelo; acota la cola independientemente del tipo de pool
+    private final Semaphore capacity;
+    private final Semaphore interactiveCapacity;
+    // Protegidos por el monitor de lanes
+    private final Map<InvoicePriority, ArrayDeque<LaneTask>> lanes = new EnumMap<>(InvoicePriority.class);
+    // Turnos repartidos mientras BULK compite con otros carriles, y los que fueron para BULK
+    private long contendedTurns;
+    private long bulkTurns;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LaneCounters[] laneCounters = new LaneCounters[InvoicePriority.values().length];
+
+    public InvoiceExecutor(InvoiceExecutorConfig config) {
+        if (config.getPoolSize() < 1 || config.getQueueCapacity() < 0 || config.getInteractiveQueueCapacity() < 0) {
+            throw new IllegalArgumentException("poolSize must be positive and queue capacities non-negative");
+        }
+        if (config.getBulkShare() < 0 || config.getBulkShare() > 1) {
+            throw new IllegalArgumentException("bulkShare must be between 0 and 1");
+        }
+        this.config = config;
+        this.capacity = new Semaphore(config.getPoolSize() + config.getQueueCapacity(), true);
+        this.interactiveCapacity = new Semaphore(config.getPoolSize() + config.getInteractiveQueueCapacity(), true);
+        for (InvoicePriority priority : InvoicePriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            laneCounters[priority.ordinal()] = new LaneCounters();
+        }
+        this.delegate = createDelegate(config);
+    }
+
+    public void submit(Runnable task) {
+        submit(task, InvoicePriority.NORMAL);
+    }
+
+    public void submit(Runnable task, InvoicePriority priority) {
+        Semaphore slots = slotsFor(priority);
+        acquireSlot(slots, priority);
+        LaneTask laneTask = new LaneTask(task, priority, System.nanoTime());
+        synchronized (lanes) {
+            lanes.get(priority).add(laneTask);
+        }
+        submitted.increment();
+        laneCounters[priority.ordinal()].submitted.increment();
+        try {
+            // Cada envío añade un turno al pool; el hilo que lo ejecute decide qué tarea toca
+            delegate.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            boolean removed;
+            synchronized (lanes) {
+                removed = lanes.get(priority).remove(laneTask);
+            }
+            if (!removed) {
+                // Un turno anterior ya la tomó y se ejecutará con normalidad
+                return;
+            }
+            submitted.decrement();
+            laneCounters[priority.ordinal()].submitted.decrement();
+            slots.release();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Deja de aceptar tareas y espera a que se procesen las que ya están en cola.
+     */
+    public void shutdown() {
+        delegate.shutdown();
+        try {
+            long timeout = config.getShutdownTimeout().toMillis();
+            if (!delegate.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                System.err.println("[Executor] Tiempo de espera agotado; tareas pendientes: "
+                        + getStats().getQueueDepth());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    public InvoiceExecutorStats getStats() {
+        Map<InvoicePriority, LaneStats> laneStats = new EnumMap<>(InvoicePriority.class);
+        for (InvoicePriority priority : InvoicePriority.values()) {
+            LaneCounters counters = laneCounters[priority.ordinal()];
+            int depth;
+            synchronized (lanes) {
+                depth = lanes.get(priority).size();
+            }
+            laneStats.put(priority, LaneStats.builder()
+                    .queueDepth(depth)
+                    .submitted(counters.submitted.sum())
+                    .completed(counters.completed.sum())
+                    .totalLatencyNanos(counters.totalLatencyNanos.sum())
+                    .maxLatencyNanos(counters.maxLatencyNanos.get())
+                    .build());
+        }
+        return InvoiceExecutorStats.builder()
+                .queueDepth(queueDepth())
+                .activeWorkers(running.get())
+                .submitted(submitted.sum())
+                .completed(completed.sum())
+                .rejected(rejected.sum())
+                .totalLatencyNanos(totalLatencyNanos.sum())
+                .maxLatencyNanos(maxLatencyNanos.get())
+                .lanes(Collections.unmodifiableMap(laneStats))
+                .build();
+    }
+
+    private void runNext() {
+        LaneTask next = nextTask();
+        if (next == null) {
+            return;
+        }
+        running.incrementAndGet();
+        try {
+            next.task.run();
+        } finally {
+            running.decrementAndGet();
+            recordLatency(next.priority, System.nanoTime() - next.enqueuedAt);
+            slotsFor(next.priority).release();
+        }
+    }
+
+    // Prioridad estricta, salvo cuando BULK compite con otros carriles y su parte de
+    // los turnos ha caído por debajo de bulkShare: entonces el turno es suyo. Con
+    // bulkShare = 0.3, BULK recibe 3 de cada 10 turnos disputados.
+    private LaneTask nextTask() {
+        synchronized (lanes) {
+            ArrayDeque<LaneTask> bulk = lanes.get(InvoicePriority.BULK);
+            if (bulk.isEmpty()) {
+                // La cuenta solo vale mientras BULK tiene trabajo; no acumula crédito
+                contendedTurns = 0;
+                bulkTurns = 0;
+            } else if (hasWorkAheadOfBulk()) {
+                boolean bulkTurn = bulkTurns < config.getBulkShare() * contendedTurns;
+                contendedTurns++;
+                if (bulkTurn) {
+                    bulkTurns++;
+                    return bulk.poll();
+                }
+            }
+            for (InvoicePriority priority : InvoicePriority.values()) {
+                LaneTask task = lanes.get(priority).poll();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+
+    private boolean hasWorkAheadOfBulk() {
+        for (InvoicePriority priority : InvoicePriority.values()) {
+            if (priority != InvoicePriority.BULK && !lanes.get(priority).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Semaphore slotsFor(InvoicePriority priority) {
+        return priority == InvoicePriority.INTERACTIVE ? interactiveCapacity : capacity;
+    }
+
+    private void acquireSlot(Semaphore slots, InvoicePriority priority) {
+        if (delegate.isShutdown()) {
+            rejected.increment();
+            throw new RejectedExecutionException("Invoice executor has been shut down");
+        }
+        if (config.getOverflowPolicy() == InvoiceExecutorConfig.OverflowPolicy.REJECT) {
+            if (!slots.tryAcquire()) {
+                rejected.increment();
+                int queueCapacity = priority == InvoicePriority.INTERACTIVE
+                        ? config.getInteractiveQueueCapacity()
+                        : config.getQueueCapacity();
+                throw new RejectedExecutionException("Invoice queue is full (capacity "
+                        + queueCapacity + ")");
+            }
+            return;
+        }
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new RejectedExecutionException("Interrupted while waiting for queue space", e);
+        }
+    }
+
+    private void recordLatency(InvoicePriority priority, long nanos) {
+        completed.increment();
+        totalLatencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+        LaneCounters counters = laneCounters[priority.ordinal()];
+        counters.completed.increment();
+        counters.totalLatencyNanos.add(nanos);
+        counters.maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private int queueDepth() {
+        if (delegate instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) delegate).getQueue().size();
+        }
+        ForkJoinPool pool = (ForkJoinPool) delegate;
+        return (int) (pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+    }
+
+    private static ExecutorService createDelegate(InvoiceExecutorConfig config) {
+        if (config.getType() == InvoiceExecutorConfig.Type.WORK_STEALING) {
+            // Modo asíncrono (FIFO) para respetar el orden de llegada de las facturas
+            return new ForkJoinPool(config.getPoolSize(),
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        // La cola no necesita límite propio: el semáforo ya acota las tareas en vuelo
+        return new ThreadPoolExecutor(config.getPoolSize(), config.getPoolSize(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "invoice-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    private static final class LaneTask {
+        private final Runnable task;
+        private final InvoicePriority priority;
+        private final long enqueuedAt;
+
+        private LaneTask(Runnable task, InvoicePriority priority, long enqueuedAt) {
+            this.task = task;
+            this.priority = priority;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class LaneCounters {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,48 @@
+package com.uapa.service;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoiceExecutorConfig {
+    public enum Type {
+        // Pool fijo de hilos con una cola compartida
+        FIXED,
+        // ForkJoinPool con colas por hilo y robo de trabajo
+        WORK_STEALING
+    }
+
+    public enum OverflowPolicy {
+        // Lanza RejectedExecutionException si la cola está llena
+        REJECT,
+        // Bloquea al llamador hasta que haya espacio en la cola
+        BACKPRESSURE
+    }
+
+    @Builder.Default
+    Type type = Type.FIXED;
+    @Builder.Default
+    int poolSize = Runtime.getRuntime().availableProcessors();
+    // Tareas que pueden esperar en cola además de las que se están ejecutando
+    @Builder.Default
+    int queueCapacity = 1000;
+    @Builder.Default
+    OverflowPolicy overflowPolicy = OverflowPolicy.BACKPRESSURE;
+    // Plazas propias del carril interactivo, para que los lotes no lo bloqueen
+    @Builder.Default
+    int interactiveQueueCapacity = 100;
+    // Fracción mínima de las tareas despachadas que se reserva al carril BULK
+    // mientras tenga trabajo pendiente (0 = prioridad estricta)
+    @Builder.Default
+    double bulkShare = 0.1;
+    // Tiempo máximo que shutdown() espera a que se vacíe la cola
+    @Builder.Default
+    Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public static InvoiceExecutorConfig defaults() {
+        return InvoiceExecutorConfig.builder().build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.uapa.service;
+
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoiceExecutorStats {
+    int queueDepth;
+    int activeWorkers;
+    long submitted;
+    long completed;
+    long rejected;
+    // Latencia desde que la tarea se encola hasta que termina
+    long totalLatencyNanos;
+    long maxLatencyNanos;
+    Map<InvoicePriority, LaneStats> lanes;
+
+    public LaneStats getLane(InvoicePriority priority) {
+        return lanes.get(priority);
+    }
+
+    public double getAverageLatencyMillis() {
+        return completed == 0 ? 0.0 : totalLatencyNanos / 1_000_000.0 / completed;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,193 @@
+package com.uapa.service;
+
+import com.uapa.model.Invoice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Procesa cada factura a través de una secuencia de etapas. Cada etapa tiene
+ * su propio {@link InvoiceExecutor}, así que su paralelismo y su cola se
+ * dimensionan por separado, y la prioridad de la factura se respeta en todas.
+ * Cuando una etapa se llena, la anterior espera al entregarle la factura
+ * (backpressure) en lugar de acumular trabajo sin límite.
+ *
+ * Las estadísticas por etapa permiten ver cuál limita el rendimiento: una
+ * cola que crece con el tiempo de proceso estable indica falta de hilos.
+ *
+ * Una etapa asíncrona libera su hilo al devolver el futuro; su tiempo de
+ * proceso incluye la espera hasta que se completa.
+ */
+public class InvoicePipeline implements AutoCloseable {
+    // Espera máxima al cerrar a que terminen las etapas asíncronas en curso
+    private static final long ASYNC_DRAIN_MILLIS = 30_000;
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    public InvoicePipeline(List<PipelineStage> definitions) {
+        if (definitions.isEmpty()) {
+            throw new IllegalArgumentException("A pipeline needs at least one stage");
+        }
+        for (PipelineStage definition : definitions) {
+            if ((definition.getHandler() == null) == (definition.getAsyncHandler() == null)) {
+                throw new IllegalArgumentException("Stage " + definition.getName()
+                        + " needs exactly one of handler or asyncHandler");
+            }
+            stages.add(new Stage(definition));
+        }
+    }
+
+    /**
+     * Encola la factura en la primera etapa. El futuro se completa con la
+     * factura devuelta por la última etapa, o con la excepción de la etapa
+     * que falló; las etapas siguientes ya no se ejecutan.
+     *
+     * @throws RejectedExecutionException si la primera etapa no la admite
+     */
+    public CompletableFuture<Invoice> process(Invoice invoice, InvoicePriority priority) {
+        CompletableFuture<Invoice> result = new CompletableFuture<>();
+        submit(0, invoice, priority, result);
+        return result;
+    }
+
+    public List<StageStats> getStageStats() {
+        List<StageStats> stats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            stats.add(StageStats.builder()
+                    .name(stage.name)
+                    .processed(stage.processed.sum())
+                    .failed(stage.failed.sum())
+                    .totalProcessingNanos(stage.totalNanos.sum())
+                    .maxProcessingNanos(stage.maxNanos.get())
+                    .executor(stage.executor.getStats())
+                    .build());
+        }
+        return stats;
+    }
+
+    // Cierra las etapas en orden: cada una termina de entregar a la siguiente antes de que esta cierre
+    @Override
+    public void close() {
+        for (Stage stage : stages) {
+            stage.executor.shutdown();
+            stage.awaitAsync();
+        }
+    }
+
+    private void submit(int index, Invoice invoice, InvoicePriority priority, CompletableFuture<Invoice> result) {
+        Stage stage = stages.get(index);
+        stage.executor.submit(() -> run(index, invoice, priority, result), priority);
+    }
+
+    private void run(int index, Invoice invoice, InvoicePriority priority, CompletableFuture<Invoice> result) {
+        Stage stage = stages.get(index);
+        long start = System.nanoTime();
+        if (stage.asyncHandler == null) {
+            Invoice output;
+            try {
+                output = stage.handler.apply(invoice);
+            } catch (RuntimeException e) {
+                stage.record(System.nanoTime() - start, false);
+                result.completeExceptionally(e);
+                return;
+            }
+            stage.record(System.nanoTime() - start, true);
+            forward(index, output, priority, result);
+            return;
+        }
+        CompletableFuture<Invoice> pending;
+        try {
+            pending = stage.asyncHandler.apply(invoice);
+        } catch (RuntimeException e) {
+            stage.record(System.nanoTime() - start, false);
+            result.completeExceptionally(e);
+            return;
+        }
+        stage.inFlight.incrementAndGet();
+        pending.whenComplete((output, error) -> {
+            try {
+                stage.record(System.nanoTime() - start, error == null);
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                } else {
+                    forward(index, output, priority, result);
+                }
+            } finally {
+                stage.asyncDone();
+            }
+        });
+    }
+
+    private void forward(int index, Invoice output, InvoicePriority priority, CompletableFuture<Invoice> result) {
+        if (index + 1 == stages.size()) {
+            result.complete(output);
+            return;
+        }
+        try {
+            submit(index + 1, output, priority, result);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static final class Stage {
+        private final String name;
+        private final UnaryOperator<Invoice> handler;
+        private final Function<Invoice, CompletableFuture<Invoice>> asyncHandler;
+        // Facturas cuyo futuro aún no se ha completado
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final InvoiceExecutor executor;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Stage(PipelineStage definition) {
+            this.name = definition.getName();
+            this.handler = definition.getHandler();
+            this.asyncHandler = definition.getAsyncHandler();
+            this.executor = new InvoiceExecutor(definition.getExecutor());
+        }
+
+        private void asyncDone() {
+            if (inFlight.decrementAndGet() == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized void awaitAsync() {
+            long deadline = System.currentTimeMillis() + ASYNC_DRAIN_MILLIS;
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    System.err.println("[Pipeline] La etapa " + name + " cierra con " + inFlight.get()
+                            + " facturas sin completar");
+                    return;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void record(long nanos, boolean success) {
+            (success ? processed : failed).increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.uapa.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoicePipelineConfig {
+    @Builder.Default
+    InvoiceExecutorConfig validate = InvoiceExecutorConfig.builder().poolSize(1).build();
+    @Builder.Default
+    InvoiceExecutorConfig pricing = InvoiceExecutorConfig.defaults();
+    // Acotado por las conexiones a la base de datos, no por los núcleos
+    @Builder.Default
+    InvoiceExecutorConfig persist = InvoiceExecutorConfig.builder().poolSize(4).build();
+    // Un solo hilo para publicar los eventos en el orden en que se guardan
+    @Builder.Default
+    InvoiceExecutorConfig publish = InvoiceExecutorConfig.builder().poolSize(1).build();
+    // Impuesto aplicado sobre la suma de las líneas (0.18 = 18 %)
+    @Builder.Default
+    double taxRate = 0.0;
+
+    public static InvoicePipelineConfig defaults() {
+        return InvoicePipelineConfig.builder().build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.uapa.service;
+
+// Carril de procesamiento de una factura, de mayor a menor prioridad
+public enum InvoicePriority {
+    // Facturas creadas por un usuario desde la interfaz
+    INTERACTIVE,
+    NORMAL,
+    // Importaciones masivas y otros trabajos sin nadie esperando
+    BULK
+}
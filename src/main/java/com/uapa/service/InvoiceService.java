@@ -1,12 +1,49 @@
 package com.uapa.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
 import com.uapa.observer.InvoiceObserver;
+import com.uapa.repository.BulkSaveReport;
 
 public interface InvoiceService {
+    // Usa el id de la factura como clave de idempotencia
     void createInvoice(Invoice invoice);
 
+    // Los reintentos con la misma clave reciben el resultado del primer envío
+    void createInvoice(String idempotencyKey, Invoice invoice);
+
+    // Sin prioridad explícita las facturas van al carril NORMAL
+    void createInvoice(Invoice invoice, InvoicePriority priority);
+
+    // Se completa cuando la factura se ha guardado y se ha avisado al publicador.
+    // Con OutboxRelay como publicador el evento se entrega después, desde el outbox:
+    // el futuro no espera a que lo reciban los observadores
+    CompletableFuture<Invoice> createInvoiceAsync(Invoice invoice);
+
+    CompletableFuture<Invoice> createInvoiceAsync(String idempotencyKey, Invoice invoice);
+
+    CompletableFuture<Invoice> createInvoiceAsync(Invoice invoice, InvoicePriority priority);
+
+    CompletableFuture<Invoice> createInvoiceAsync(String idempotencyKey, Invoice invoice, InvoicePriority priority);
+
+    // Importación masiva: valida y calcula todas las facturas, las guarda en lotes y
+    // publica un BATCH_IMPORTED con las guardadas (y un FAILED por cada rechazada).
+    // Cada factura guardada se anuncia además como creada, igual que con createInvoice
+    BulkSaveReport importInvoices(Collection<Invoice> invoices);
+
     List<Invoice> getAllInvoices();
+
+    InvoicePage findPage(InvoicePageKey afterKey, int limit);
+
+    long countInvoiceLines();
+
+    List<InvoiceLine> findInvoiceLines(long offset, int limit);
+
+    List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit);
 }
\ No newline at end of file
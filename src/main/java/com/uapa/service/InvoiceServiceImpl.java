@@ -1,37 +1,226 @@
 package com.uapa.service;
 
+import com.uapa.event.InvoiceEvent;
 import com.uapa.event.InvoiceEventPublisher;
 import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
+import com.uapa.repository.BulkSaveReport;
 import com.uapa.repository.InvoiceRepository;
+import com.uapa.repository.RepositoryException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class InvoiceServiceImpl implements InvoiceService {
     private final InvoiceRepository repository;
     private final InvoiceEventPublisher eventPublisher;
+    private final double taxRate;
+    private final InvoicePipeline pipeline;
+    private final IdempotencyIndex idempotencyIndex;
 
     // Inyectamos tanto el repositorio como el publicador de eventos
     public InvoiceServiceImpl(InvoiceRepository repository, InvoiceEventPublisher eventPublisher) {
+        this(repository, eventPublisher, InvoicePipelineConfig.defaults(), IdempotencyConfig.defaults());
+    }
+
+    public InvoiceServiceImpl(InvoiceRepository repository, InvoiceEventPublisher eventPublisher,
+            InvoicePipelineConfig pipelineConfig, IdempotencyConfig idempotencyConfig) {
         this.repository = repository;
         this.eventPublisher = eventPublisher;
+        this.taxRate = pipelineConfig.getTaxRate();
+        // Validar -> calcular importes -> guardar -> publicar, cada etapa con su propio pool.
+        // La factura solo se publica cuando ya está en la base de datos
+        this.pipeline = new InvoicePipeline(List.of(
+                PipelineStage.builder().name("validate").handler(this::validate)
+                        .executor(pipelineConfig.getValidate()).build(),
+                PipelineStage.builder().name("pricing").handler(this::price)
+                        .executor(pipelineConfig.getPricing()).build(),
+                PipelineStage.builder().name("persist").asyncHandler(this::persist)
+                        .executor(pipelineConfig.getPersist()).build(),
+                PipelineStage.builder().name("publish").handler(this::publish)
+                        .executor(pipelineConfig.getPublish()).build()));
+        this.idempotencyIndex = new IdempotencyIndex(idempotencyConfig);
     }
 
     @Override
     public void createInvoice(Invoice invoice) {
-        Runnable task = () -> {
+        createInvoice(invoice, InvoicePriority.NORMAL);
+    }
+
+    @Override
+    public void createInvoice(String idempotencyKey, Invoice invoice) {
+        log(createInvoiceAsync(idempotencyKey, invoice, InvoicePriority.NORMAL), invoice);
+    }
+
+    @Override
+    public void createInvoice(Invoice invoice, InvoicePriority priority) {
+        log(createInvoiceAsync(invoice.getId(), invoice, priority), invoice);
+    }
+
+    @Override
+    public CompletableFuture<Invoice> createInvoiceAsync(Invoice invoice) {
+        return createInvoiceAsync(invoice.getId(), invoice, InvoicePriority.NORMAL);
+    }
+
+    @Override
+    public CompletableFuture<Invoice> createInvoiceAsync(String idempotencyKey, Invoice invoice) {
+        return createInvoiceAsync(idempotencyKey, invoice, InvoicePriority.NORMAL);
+    }
+
+    @Override
+    public CompletableFuture<Invoice> createInvoiceAsync(Invoice invoice, InvoicePriority priority) {
+        return createInvoiceAsync(invoice.getId(), invoice, priority);
+    }
+
+    @Override
+    public CompletableFuture<Invoice> createInvoiceAsync(String idempotencyKey, Invoice invoice,
+            InvoicePriority priority) {
+        // Un reintento no vuelve a la base de datos: recibe el resultado original
+        return idempotencyIndex.computeIfAbsent(idempotencyKey, () -> submit(invoice, priority));
+    }
+
+    private static void log(CompletableFuture<Invoice> result, Invoice invoice) {
+        result.exceptionally(ex -> {
+            System.err.println("[Service] Error al crear la factura " + invoice.getId() + ": " + ex);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Invoice> submit(Invoice invoice, InvoicePriority priority) {
+        CompletableFuture<Invoice> result = new CompletableFuture<>();
+        pipeline.process(invoice, priority).whenComplete((processed, error) -> {
+            if (error == null) {
+                result.complete(processed);
+                return;
+            }
+            Throwable failure = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            // El futuro falla con la causa real (normalmente una SQLException)
+            Throwable cause = failure instanceof RepositoryException && failure.getCause() != null
+                    ? failure.getCause() : failure;
             try {
-                Thread.sleep(1000); // Simula un procesamiento pesado
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                eventPublisher.publishEvent(InvoiceEvent.failed(invoice, cause));
+            } catch (RuntimeException e) {
+                System.err.println("[Service] Error al publicar el fallo de " + invoice.getId() + ": " + e);
+            }
+            result.completeExceptionally(cause);
+        });
+        return result;
+    }
+
+    private Invoice validate(Invoice invoice) {
+        if (invoice.getId() == null || invoice.getId().isBlank()) {
+            throw new IllegalArgumentException("Invoice id is required");
+        }
+        if (invoice.getDate() == null) {
+            throw new IllegalArgumentException("Invoice " + invoice.getId() + " has no date");
+        }
+        if (invoice.getItems() != null) {
+            for (InvoiceItem item : invoice.getItems()) {
+                if (item.getQuantity() <= 0 || item.getPrice() < 0) {
+                    throw new IllegalArgumentException("Invoice " + invoice.getId()
+                            + " has an invalid line for " + item.getProduct());
+                }
             }
-            repository.saveInvoice(invoice);
-            // Publicamos el evento de factura creada
-            eventPublisher.publishInvoiceCreated(invoice);
-        };
-        new Thread(task).start();
+        }
+        return invoice;
+    }
+
+    // Recalcula el total a partir de las líneas; las facturas sin líneas conservan el suyo.
+    // Se calcula sobre una copia: la factura del llamador no cambia desde un hilo del pool
+    private Invoice price(Invoice invoice) {
+        if (invoice.getItems() == null || invoice.getItems().isEmpty()) {
+            return invoice;
+        }
+        double subtotal = invoice.getItems().stream()
+                .mapToDouble(item -> item.getQuantity() * item.getPrice())
+                .sum();
+        return invoice.toBuilder().total(subtotal * (1 + taxRate)).build();
+    }
+
+    // Con un repositorio diferido el hilo de la etapa no espera a que se aplique el diario
+    private CompletableFuture<Invoice> persist(Invoice invoice) {
+        return repository.saveInvoiceAsync(invoice).thenApply(ignored -> invoice);
+    }
+
+    private Invoice publish(Invoice invoice) {
+        // Publicamos el evento de factura creada
+        eventPublisher.publishInvoiceCreated(invoice);
+        return invoice;
+    }
+
+    @Override
+    public BulkSaveReport importInvoices(Collection<Invoice> invoices) {
+        // Una factura no válida detiene la importación antes de guardar nada
+        List<Invoice> priced = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            priced.add(price(validate(invoice)));
+        }
+        BulkSaveReport report = repository.saveInvoices(priced);
+        Map<String, Exception> rejections = new HashMap<>();
+        for (BulkSaveReport.RejectedInvoice rejected : report.getRejected()) {
+            rejections.put(rejected.getInvoiceId(), rejected.getCause());
+        }
+        List<Invoice> saved = new ArrayList<>(priced.size() - rejections.size());
+        for (Invoice invoice : priced) {
+            Exception cause = rejections.get(invoice.getId());
+            if (cause == null) {
+                saved.add(invoice);
+                eventPublisher.publishInvoiceCreated(invoice);
+            } else {
+                eventPublisher.publishEvent(InvoiceEvent.failed(invoice, cause));
+            }
+        }
+        if (!saved.isEmpty()) {
+            eventPublisher.publishEvent(InvoiceEvent.batchImported(saved));
+        }
+        return report;
     }
 
     @Override
     public List<Invoice> getAllInvoices() {
         return repository.getAllInvoices();
     }
+
+    @Override
+    public InvoicePage findPage(InvoicePageKey afterKey, int limit) {
+        return repository.findPage(afterKey, limit);
+    }
+
+    @Override
+    public long countInvoiceLines() {
+        return repository.countInvoiceLines();
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLines(long offset, int limit) {
+        return repository.findInvoiceLines(offset, limit);
+    }
+
+    @Override
+    public List<InvoiceLine> findInvoiceLinesAfter(InvoiceLine last, int limit) {
+        return repository.findInvoiceLinesAfter(last, limit);
+    }
+
+    // Tiempos, colas y fallos de cada etapa, en orden de proceso
+    public List<StageStats> getStageStats() {
+        return pipeline.getStageStats();
+    }
+
+    // Envíos respondidos con el resultado de uno anterior
+    public long getDuplicateCount() {
+        return idempotencyIndex.getHitCount();
+    }
+
+    // Espera a que se procesen las facturas en cola antes de terminar
+    public void shutdown() {
+        pipeline.close();
+    }
 }
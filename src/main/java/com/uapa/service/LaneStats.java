@@ -0,0 +1,23 @@
+package com.uapa.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class LaneStats {
+    int queueDepth;
+    long submitted;
+    long completed;
+    // Latencia desde que la tarea se encola hasta que termina
+    long totalLatencyNanos;
+    long maxLatencyNanos;
+
+    public double getAverageLatencyMillis() {
+        return completed == 0 ? 0.0 : totalLatencyNanos / 1_000_000.0 / completed;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1_000_000.0;
+    }
+}
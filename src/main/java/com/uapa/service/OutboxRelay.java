@@ -0,0 +1,144 @@
+package com.uapa.service;
+
+import com.uapa.event.InvoiceEvent;
+import com.uapa.event.InvoiceEventPublisher;
+import com.uapa.event.InvoiceEventType;
+import com.uapa.model.Invoice;
+import com.uapa.repository.InvoiceOutbox;
+import com.uapa.repository.InvoiceOutbox.OutboxEntry;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lee en segundo plano las entradas pendientes de invoice_outbox, publica sus
+ * eventos a través del {@link InvoiceEventPublisher} y las marca como
+ * entregadas. Si el proceso cae entre publicar y marcar, el evento se vuelve
+ * a publicar al arrancar (entrega al menos una vez). Las entradas entregadas
+ * se borran cuando superan {@link OutboxRelayConfig#getDeliveredRetention()}.
+ *
+ * Para el servicio, el relay ocupa el lugar del publicador: el evento ya
+ * quedó guardado en la transacción de la factura, así que
+ * {@link #publishInvoiceCreated(Invoice)} solo adelanta el siguiente sondeo.
+ */
+public class OutboxRelay implements InvoiceEventPublisher, AutoCloseable {
+    private final InvoiceOutbox outbox;
+    private final InvoiceEventPublisher publisher;
+    private final OutboxRelayConfig config;
+    private final Thread worker;
+    private final LongAdder relayed = new LongAdder();
+    private volatile boolean running = true;
+
+    public OutboxRelay(InvoiceOutbox outbox, InvoiceEventPublisher publisher) {
+        this(outbox, publisher, OutboxRelayConfig.defaults());
+    }
+
+    public OutboxRelay(InvoiceOutbox outbox, InvoiceEventPublisher publisher, OutboxRelayConfig config) {
+        if (config.getBatchSize() < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        if (config.getDeliveredRetention().isNegative()) {
+            throw new IllegalArgumentException("deliveredRetention must not be negative");
+        }
+        this.outbox = outbox;
+        this.publisher = publisher;
+        this.config = config;
+        this.worker = new Thread(this::pollLoop, "invoice-outbox-relay");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    @Override
+    public void publishInvoiceCreated(Invoice invoice) {
+        LockSupport.unpark(worker);
+    }
+
+    // Solo los eventos SAVED pasan por el outbox; el resto se reenvía tal cual
+    @Override
+    public void publishEvent(InvoiceEvent event) {
+        if (event.getType() == InvoiceEventType.SAVED) {
+            publishInvoiceCreated(event.getInvoice());
+        } else {
+            publisher.publishEvent(event);
+        }
+    }
+
+    /**
+     * Publica las entradas pendientes hasta vaciar el outbox y devuelve
+     * cuántas se entregaron. Si un observador falla, las entradas ya
+     * publicadas se marcan y el resto queda para el siguiente intento.
+     */
+    public synchronized int relayPending() {
+        int total = 0;
+        while (true) {
+            List<OutboxEntry> batch = outbox.findPending(config.getBatchSize());
+            int published = 0;
+            try {
+                for (OutboxEntry entry : batch) {
+                    publisher.publishInvoiceCreated(entry.getInvoice());
+                    published++;
+                }
+            } finally {
+                outbox.markDelivered(batch.subList(0, published));
+                relayed.add(published);
+                total += published;
+            }
+            if (batch.size() < config.getBatchSize()) {
+                return total;
+            }
+        }
+    }
+
+    // Borra las entradas entregadas que superan la retención y devuelve cuántas
+    public int purgeDelivered() {
+        int purged = outbox.purgeDelivered(Instant.now().minus(config.getDeliveredRetention()));
+        if (purged > 0) {
+            System.out.println("[Outbox] Entradas entregadas borradas: " + purged);
+        }
+        return purged;
+    }
+
+    public long getRelayedCount() {
+        return relayed.sum();
+    }
+
+    // Detiene el sondeo y entrega lo que quede pendiente
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        relayPending();
+    }
+
+    private void pollLoop() {
+        // La primera purga se hace al arrancar, con lo que quedó de la ejecución anterior
+        long nextPurge = System.nanoTime();
+        while (running) {
+            try {
+                relayPending();
+            } catch (RuntimeException e) {
+                System.err.println("[Outbox] Error al publicar eventos pendientes: " + e);
+            }
+            if (System.nanoTime() - nextPurge >= 0) {
+                nextPurge = System.nanoTime() + config.getPurgeInterval().toNanos();
+                try {
+                    purgeDelivered();
+                } catch (RuntimeException e) {
+                    System.err.println("[Outbox] Error al borrar entradas entregadas: " + e);
+                }
+            }
+            // Espera el intervalo o hasta que el servicio avise de una factura nueva
+            LockSupport.parkNanos(this, config.getPollInterval().toNanos());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.uapa.service;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class OutboxRelayConfig {
+    // Intervalo entre sondeos cuando no hay aviso de facturas nuevas
+    @Builder.Default
+    Duration pollInterval = Duration.ofMillis(500);
+    // Entradas leídas del outbox por consulta
+    @Builder.Default
+    int batchSize = 100;
+    // Tiempo que se conservan las entradas ya entregadas antes de borrarlas
+    @Builder.Default
+    Duration deliveredRetention = Duration.ofDays(7);
+    // Cada cuánto se borran las entradas entregadas que superan la retención
+    @Builder.Default
+    Duration purgeInterval = Duration.ofMinutes(10);
+
+    public static OutboxRelayConfig defaults() {
+        return OutboxRelayConfig.builder().build();
+    }
+}
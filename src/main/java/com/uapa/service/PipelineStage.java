@@ -0,0 +1,24 @@
+package com.uapa.service;
+
+import com.uapa.model.Invoice;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PipelineStage {
+    String name;
+    // Recibe la factura de la etapa anterior y devuelve la que pasa a la siguiente
+    UnaryOperator<Invoice> handler;
+    // Alternativa a handler para etapas que terminan fuera de su hilo: el hilo de la
+    // etapa queda libre al devolver el futuro y la factura pasa a la siguiente al completarse
+    Function<Invoice, CompletableFuture<Invoice>> asyncHandler;
+    // Hilos, cola y carriles propios de la etapa
+    @Builder.Default
+    InvoiceExecutorConfig executor = InvoiceExecutorConfig.defaults();
+}
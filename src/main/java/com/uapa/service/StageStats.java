@@ -0,0 +1,26 @@
+package com.uapa.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class StageStats {
+    String name;
+    long processed;
+    long failed;
+    // Tiempo dentro del handler, sin contar la espera en la cola de la etapa
+    long totalProcessingNanos;
+    long maxProcessingNanos;
+    // Cola, hilos y latencia (espera + proceso) del ejecutor de la etapa
+    InvoiceExecutorStats executor;
+
+    public double getAverageProcessingMillis() {
+        long total = processed + failed;
+        return total == 0 ? 0.0 : totalProcessingNanos / 1_000_000.0 / total;
+    }
+
+    public double getMaxProcessingMillis() {
+        return maxProcessingNanos / 1_000_000.0;
+    }
+}
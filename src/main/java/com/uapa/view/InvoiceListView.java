@@ -1,21 +1,29 @@
 package com.uapa.view;
 
 import com.uapa.controller.InvoiceController;
-import com.uapa.model.Invoice;
-import com.uapa.model.InvoiceItem;
+import com.uapa.event.SimpleInvoiceEventPublisher;
+import com.uapa.observer.InvoiceObserver;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
-import java.util.List;
 
 public class InvoiceListView extends JFrame {
     private final InvoiceController controller;
     private JTable table;
-    private DefaultTableModel tableModel;
+    private InvoiceTableModel tableModel;
+    private JLabel statusLabel;
+    private final SimpleInvoiceEventPublisher eventPublisher;
+    private final InvoiceObserver newInvoiceObserver;
 
     public InvoiceListView(InvoiceController controller) {
+        this(controller, null);
+    }
+
+    // With a publisher, invoices created while the window is open are appended
+    // to the table without a refresh.
+    public InvoiceListView(InvoiceController controller, SimpleInvoiceEventPublisher eventPublisher) {
         this.controller = controller;
+        this.eventPublisher = eventPublisher;
 
         // Set Nimbus Look and Feel if available.
         try {
@@ -45,14 +53,8 @@ public class InvoiceListView extends JFrame {
         headerLabel.setBorder(BorderFactory.createEmptyBorder(20, 0, 20, 0));
         mainPanel.add(headerLabel, BorderLayout.NORTH);
 
-        // Table panel.
-        tableModel = new DefaultTableModel(
-                new Object[] { "ID Factura", "Fecha", "Total", "Producto", "Cantidad", "Precio" }, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Table panel. Rows are loaded lazily in blocks as they become visible.
+        tableModel = new InvoiceTableModel(controller);
 
         table = new JTable(tableModel);
         table.setFillsViewportHeight(true);
@@ -82,36 +84,45 @@ public class InvoiceListView extends JFrame {
         refreshButton.setFocusPainted(false);
         refreshButton.addActionListener(e -> loadInvoices());
         footerPanel.add(refreshButton);
+
+        // Loading state: the data is fetched in the background, so the window
+        // stays responsive and shows progress here instead of freezing.
+        statusLabel = new JLabel(" ");
+        statusLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        statusLabel.setForeground(new Color(60, 63, 65));
+        footerPanel.add(statusLabel);
+        tableModel.addPropertyChangeListener(e -> updateStatus());
         mainPanel.add(footerPanel, BorderLayout.SOUTH);
 
+        // Called from the worker thread that saved the invoice; the model
+        // batches the new rows onto the EDT.
+        newInvoiceObserver = invoice -> tableModel.appendInvoice(invoice);
+        if (eventPublisher != null) {
+            eventPublisher.registerObserver(newInvoiceObserver);
+        }
+
         loadInvoices();
     }
 
+    @Override
+    public void dispose() {
+        if (eventPublisher != null) {
+            eventPublisher.unregisterObserver(newInvoiceObserver);
+        }
+        super.dispose();
+    }
+
     private void loadInvoices() {
-        List<Invoice> invoices = controller.getAllInvoices();
-        tableModel.setRowCount(0);
-        for (Invoice invoice : invoices) {
-            // If the invoice has no items, add an empty row for item details.
-            if (invoice.getItems() == null || invoice.getItems().isEmpty()) {
-                tableModel.addRow(new Object[] {
-                        invoice.getId(),
-                        invoice.getDate().toString(),
-                        invoice.getTotal(),
-                        "", "", ""
-                });
-            } else {
-                // For each item, add a row with both invoice and item details.
-                for (InvoiceItem item : invoice.getItems()) {
-                    tableModel.addRow(new Object[] {
-                            invoice.getId(),
-                            invoice.getDate().toString(),
-                            item.getPrice() * item.getQuantity(),
-                            item.getProduct(),
-                            item.getQuantity(),
-                            item.getPrice()
-                    });
-                }
-            }
+        tableModel.reload();
+    }
+
+    private void updateStatus() {
+        if (tableModel.isLoading()) {
+            statusLabel.setText("Cargando facturas...");
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        } else {
+            statusLabel.setText(tableModel.getRowCount() + " filas");
+            setCursor(Cursor.getDefaultCursor());
         }
     }
 }
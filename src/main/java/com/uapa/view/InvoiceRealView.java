@@ -1,6 +1,7 @@
 package com.uapa.view;
 
 import com.uapa.controller.InvoiceController;
+import com.uapa.event.SimpleInvoiceEventPublisher;
 import com.uapa.model.InvoiceItem;
 import com.uapa.observer.InvoiceGUIObserver;
 import com.uapa.observer.InvoiceObserver;
@@ -29,9 +30,16 @@ public class InvoiceRealView extends JFrame {
     private final JTextArea itemsArea;
     private final List<InvoiceItem> items;
     private final InvoiceObserver guiObserver;
+    private final SimpleInvoiceEventPublisher eventPublisher;
 
     public InvoiceRealView(InvoiceController controller) {
+        this(controller, null);
+    }
+
+    // The publisher is handed to the invoice list so it can show new invoices live.
+    public InvoiceRealView(InvoiceController controller, SimpleInvoiceEventPublisher eventPublisher) {
         this.controller = controller;
+        this.eventPublisher = eventPublisher;
         this.items = new ArrayList<>();
 
         // Apply Nimbus Look and Feel if available.
@@ -202,7 +210,7 @@ public class InvoiceRealView extends JFrame {
         addItemButton.addActionListener(this::handleAddItem);
         createInvoiceButton.addActionListener(this::handleCreateInvoice);
         viewInvoicesButton.addActionListener(e -> {
-            InvoiceListView listView = new InvoiceListView(controller);
+            InvoiceListView listView = new InvoiceListView(controller, eventPublisher);
             listView.setVisible(true);
         });
         removeItemButton.addActionListener(this::handleRemoveItem);
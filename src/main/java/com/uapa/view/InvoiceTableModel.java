@@ -0,0 +1,455 @@
+package com.uapa.view;
+
+import com.uapa.controller.InvoiceController;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceLine;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table model that knows the total number of invoice lines up front and
+ * loads them lazily, one block of rows at a time. Only the most recently
+ * used blocks are kept in memory.
+ *
+ * All database access happens off the Event Dispatch Thread: rows that are
+ * not loaded yet show a placeholder and are filled in when their block
+ * arrives. This model must only be used from the EDT.
+ *
+ * New invoices are inserted at their (date, id) position, the order the
+ * rows are read in. Blocks after that position no longer match their rows
+ * and are loaded again.
+ */
+public class InvoiceTableModel extends AbstractTableModel {
+    static final int DEFAULT_BLOCK_SIZE = 200;
+    static final int DEFAULT_MAX_BLOCKS = 50;
+    // Blocks fetched eagerly by reload() so the first screen fills in quickly.
+    static final int PRELOAD_BLOCKS = 2;
+    static final String LOADING_TEXT = "Cargando...";
+    // Invoices appended within one frame are inserted into the table together.
+    static final int FRAME_MILLIS = 16;
+
+    private static final String[] COLUMNS = { "ID Factura", "Fecha", "Total", "Producto", "Cantidad", "Precio" };
+    private static final Comparator<Invoice> LISTING_ORDER = Comparator
+            .comparing(Invoice::getDate)
+            .thenComparing(Invoice::getId);
+    // A single shared loader keeps block requests in scroll order.
+    private static final Executor SHARED_BLOCK_LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "invoice-table-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final InvoiceController controller;
+    private final int blockSize;
+    private final int maxBlocks;
+    private final Executor blockLoader;
+    private final Map<Integer, List<InvoiceLine>> blocks;
+    // Block index -> request in flight; a result is only stored if its request is still here.
+    private final Map<Integer, Long> pendingBlocks = new HashMap<>();
+    private long nextRequest;
+    private final PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
+    private int rowCount;
+    // Incremented on every reload; results from older loads are discarded.
+    private int generation;
+    private SwingWorker<Void, Object> reloadWorker;
+    private boolean loading;
+    // Invoices created since the last flush, in arrival order.
+    private final ConcurrentLinkedQueue<Invoice> incomingInvoices = new ConcurrentLinkedQueue<>();
+    // Invoices ever passed to appendInvoice, and those taken off the queue so far.
+    private final AtomicLong receivedInvoices = new AtomicLong();
+    private long drainedInvoices;
+    // Drained invoices not inserted yet; while a reload waits for its count the
+    // first one has arrival number reloadBase.
+    private final List<Invoice> drained = new ArrayList<>();
+    private boolean awaitingCount;
+    private long reloadBase;
+    private final Timer appendTimer;
+
+    public InvoiceTableModel(InvoiceController controller) {
+        this(controller, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS, SHARED_BLOCK_LOADER);
+    }
+
+    public InvoiceTableModel(InvoiceController controller, int blockSize, int maxBlocks, Executor blockLoader) {
+        this.controller = controller;
+        this.blockSize = blockSize;
+        this.maxBlocks = maxBlocks;
+        this.blockLoader = blockLoader;
+        // Access-ordered map: the eldest entry is the least recently used block.
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<InvoiceLine>> eldest) {
+                return size() > InvoiceTableModel.this.maxBlocks;
+            }
+        };
+        this.appendTimer = new Timer(FRAME_MILLIS, e -> flushAppended());
+        this.appendTimer.setRepeats(false);
+    }
+
+    /**
+     * Queues a newly created invoice to be shown at its position in the table.
+     * Safe to call from any thread; bursts are applied together once per frame.
+     */
+    public void appendInvoice(Invoice invoice) {
+        incomingInvoices.add(invoice);
+        // Counted after queueing: a reload that sees this number will also find the invoice
+        receivedInvoices.incrementAndGet();
+        if (!appendTimer.isRunning()) {
+            appendTimer.start();
+        }
+    }
+
+    /**
+     * Re-reads the row count and the first blocks in the background. A reload
+     * that is still running is cancelled, so repeated refreshes never queue up.
+     */
+    public void reload() {
+        if (reloadWorker != null) {
+            reloadWorker.cancel(true);
+        }
+        int reloadGeneration = ++generation;
+        blocks.clear();
+        pendingBlocks.clear();
+        // The first blocks are requested by the reload itself, not by getValueAt
+        long[] preloadRequests = new long[PRELOAD_BLOCKS];
+        for (int b = 0; b < PRELOAD_BLOCKS; b++) {
+            preloadRequests[b] = ++nextRequest;
+            pendingBlocks.put(b, preloadRequests[b]);
+        }
+        // Invoices not inserted yet are left to the new count
+        drainIncoming();
+        awaitingCount = true;
+        reloadBase = drainedInvoices - drained.size();
+        setLoading(true);
+
+        reloadWorker = new SwingWorker<Void, Object>() {
+            @Override
+            protected Void doInBackground() {
+                // Invoices are announced after they are saved, so invoices received
+                // before the count query runs are already included in the count.
+                long countedInvoices = receivedInvoices.get();
+                long count = controller.countInvoiceLines();
+                publish(new LoadedCount(count, countedInvoices));
+                InvoiceLine last = null;
+                for (int b = 0; b < PRELOAD_BLOCKS && (long) b * blockSize < count && !isCancelled(); b++) {
+                    List<InvoiceLine> lines = controller.findInvoiceLinesAfter(last, blockSize);
+                    publish(new LoadedBlock(b, lines));
+                    if (lines.size() < blockSize) {
+                        break;
+                    }
+                    last = lines.get(lines.size() - 1);
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<Object> chunks) {
+                if (isCancelled() || reloadGeneration != generation) {
+                    return;
+                }
+                for (Object chunk : chunks) {
+                    if (chunk instanceof LoadedCount) {
+                        LoadedCount loaded = (LoadedCount) chunk;
+                        rowCount = (int) Math.min(loaded.count + uncountedLines(loaded.countedInvoices),
+                                Integer.MAX_VALUE);
+                        fireTableDataChanged();
+                    } else {
+                        LoadedBlock loaded = (LoadedBlock) chunk;
+                        if (pendingBlocks.remove(loaded.index, preloadRequests[loaded.index])) {
+                            storeBlock(loaded);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || reloadGeneration != generation) {
+                    return;
+                }
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    System.err.println("[View] Error loading invoices: " + e.getCause());
+                }
+                for (int b = 0; b < PRELOAD_BLOCKS; b++) {
+                    pendingBlocks.remove(b, preloadRequests[b]);
+                }
+                if (awaitingCount) {
+                    // The count failed: the invoices it was going to cover are inserted as usual
+                    awaitingCount = false;
+                    flushAppended();
+                }
+                setLoading(false);
+            }
+        };
+        reloadWorker.execute();
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    // Notified with the "loading" property when a reload starts or finishes.
+    public void addPropertyChangeListener(PropertyChangeListener listener) {
+        changeSupport.addPropertyChangeListener(listener);
+    }
+
+    public int getCachedBlockCount() {
+        return blocks.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int blockIndex = row / blockSize;
+        List<InvoiceLine> block = blocks.get(blockIndex);
+        if (block == null) {
+            requestBlock(blockIndex);
+            return column == 0 ? LOADING_TEXT : "";
+        }
+        int index = row % blockSize;
+        if (index >= block.size()) {
+            // The table shrank since the row count was read.
+            return "";
+        }
+        InvoiceLine line = block.get(index);
+        switch (column) {
+            case 0:
+                return line.getInvoiceId();
+            case 1:
+                return line.getDate().toString();
+            case 2:
+                return line.getLineTotal();
+            case 3:
+                return line.hasItem() ? line.getProduct() : "";
+            case 4:
+                return line.hasItem() ? (Object) line.getQuantity() : "";
+            case 5:
+                return line.hasItem() ? (Object) line.getPrice() : "";
+            default:
+                throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+
+    private void requestBlock(int blockIndex) {
+        if (pendingBlocks.containsKey(blockIndex)) {
+            return;
+        }
+        long request = ++nextRequest;
+        pendingBlocks.put(blockIndex, request);
+        // When scrolling sequentially the previous block is cached, so we can
+        // continue right after its last row instead of skipping with OFFSET.
+        // An inserted item line has no item id to continue from.
+        List<InvoiceLine> previous = blockIndex == 0 ? null : blocks.get(blockIndex - 1);
+        InvoiceLine after = previous != null && previous.size() == blockSize ? previous.get(blockSize - 1) : null;
+        if (after != null && after.hasItem() && after.getItemId() == null) {
+            after = null;
+        }
+        boolean useKeyset = blockIndex == 0 || after != null;
+        InvoiceLine last = after;
+
+        blockLoader.execute(() -> {
+            List<InvoiceLine> lines;
+            try {
+                lines = useKeyset
+                        ? controller.findInvoiceLinesAfter(last, blockSize)
+                        : controller.findInvoiceLines((long) blockIndex * blockSize, blockSize);
+            } catch (RuntimeException e) {
+                System.err.println("[View] Error loading invoice rows: " + e);
+                SwingUtilities.invokeLater(() -> pendingBlocks.remove(blockIndex, request));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // Dropped by a reload or by an insertion before this block
+                if (pendingBlocks.remove(blockIndex, request)) {
+                    storeBlock(new LoadedBlock(blockIndex, lines));
+                }
+            });
+        });
+    }
+
+    private void storeBlock(LoadedBlock loaded) {
+        blocks.put(loaded.index, loaded.lines);
+        int first = loaded.index * blockSize;
+        int last = Math.min(first + blockSize, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private void flushAppended() {
+        drainIncoming();
+        if (awaitingCount || drained.isEmpty()) {
+            // The count of the reload in progress decides which ones it already includes
+            return;
+        }
+        List<Invoice> invoices = new ArrayList<>(drained);
+        drained.clear();
+        // In listing order each invoice goes after the previous one, so a burst
+        // that lands in one place is a single insertion
+        invoices.sort(LISTING_ORDER);
+        int first = -1;
+        int next = 0;
+        int changedFrom = Integer.MAX_VALUE;
+        for (Invoice invoice : invoices) {
+            List<InvoiceLine> lines = InvoiceLine.linesOf(invoice);
+            int row = Math.max(insertionRow(invoice), next);
+            if (first >= 0 && row != next) {
+                fireTableRowsInserted(first, next - 1);
+                first = -1;
+            }
+            changedFrom = Math.min(changedFrom, insertLines(row, lines));
+            if (first < 0) {
+                first = row;
+            }
+            next = row + lines.size();
+        }
+        fireTableRowsInserted(first, next - 1);
+        if (changedFrom < rowCount) {
+            // Rows whose block was dropped show the placeholder until it is loaded again
+            fireTableRowsUpdated(changedFrom, rowCount - 1);
+        }
+    }
+
+    // Row at which the invoice's lines belong. It is exact when the block around
+    // that position is cached; otherwise it is the first row that is not known
+    // to come before the invoice.
+    private int insertionRow(Invoice invoice) {
+        int before = -1;
+        for (Map.Entry<Integer, List<InvoiceLine>> entry : blocks.entrySet()) {
+            List<InvoiceLine> block = entry.getValue();
+            if (!block.isEmpty() && compare(block.get(block.size() - 1), invoice) < 0) {
+                before = Math.max(before, entry.getKey());
+            }
+        }
+        int blockIndex = before + 1;
+        long start = (long) blockIndex * blockSize;
+        if (start >= rowCount) {
+            return rowCount;
+        }
+        for (Map.Entry<Integer, List<InvoiceLine>> entry : blocks.entrySet()) {
+            if (entry.getKey() == blockIndex) {
+                List<InvoiceLine> block = entry.getValue();
+                int index = 0;
+                while (index < block.size() && compare(block.get(index), invoice) < 0) {
+                    index++;
+                }
+                return (int) start + index;
+            }
+        }
+        return (int) start;
+    }
+
+    // Inserts the lines at row and drops the blocks whose rows moved. Returns
+    // the first row after the insertion that no longer has its block.
+    private int insertLines(int row, List<InvoiceLine> lines) {
+        int blockIndex = row / blockSize;
+        int offset = row - blockIndex * blockSize;
+        blocks.keySet().removeIf(index -> index > blockIndex);
+        pendingBlocks.keySet().removeIf(index -> index >= blockIndex);
+        List<InvoiceLine> block = blocks.get(blockIndex);
+        int changedFrom;
+        if (block != null && offset <= block.size()) {
+            // The block keeps its first blockSize rows; the rest belong to the next one
+            List<InvoiceLine> merged = new ArrayList<>(block);
+            merged.addAll(offset, lines);
+            blocks.put(blockIndex, new ArrayList<>(merged.subList(0, Math.min(merged.size(), blockSize))));
+            changedFrom = (blockIndex + 1) * blockSize;
+        } else {
+            blocks.remove(blockIndex);
+            changedFrom = row + lines.size();
+        }
+        rowCount += lines.size();
+        return changedFrom;
+    }
+
+    private static int compare(InvoiceLine line, Invoice invoice) {
+        int byDate = line.getDate().compareTo(invoice.getDate());
+        return byDate != 0 ? byDate : line.getInvoiceId().compareTo(invoice.getId());
+    }
+
+    private void drainIncoming() {
+        Invoice invoice;
+        while ((invoice = incomingInvoices.poll()) != null) {
+            drained.add(invoice);
+            drainedInvoices++;
+        }
+    }
+
+    // Lines of the invoices that arrived after the count snapshot. They are not
+    // in the count, but were saved before the first blocks are read.
+    private int uncountedLines(long countedInvoices) {
+        drainIncoming();
+        int counted = (int) Math.min(drained.size(), Math.max(0, countedInvoices - reloadBase));
+        int lines = 0;
+        for (Invoice invoice : drained.subList(counted, drained.size())) {
+            lines += InvoiceLine.linesOf(invoice).size();
+        }
+        drained.clear();
+        awaitingCount = false;
+        return lines;
+    }
+
+    private void setLoading(boolean loading) {
+        boolean old = this.loading;
+        this.loading = loading;
+        changeSupport.firePropertyChange("loading", old, loading);
+    }
+
+    private static final class LoadedCount {
+        private final long count;
+        private final long countedInvoices;
+
+        private LoadedCount(long count, long countedInvoices) {
+            this.count = count;
+            this.countedInvoices = countedInvoices;
+        }
+    }
+
+    private static final class LoadedBlock {
+        private final int index;
+        private final List<InvoiceLine> lines;
+
+        private LoadedBlock(int index, List<InvoiceLine> lines) {
+            this.index = index;
+            this.lines = lines;
+        }
+    }
+}
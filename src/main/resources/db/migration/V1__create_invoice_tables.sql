@@ -0,0 +1,12 @@
+-- Tablas de facturas e ítems
+CREATE TABLE IF NOT EXISTS invoices (
+    id VARCHAR(255) PRIMARY KEY,
+    date DATE,
+    total DOUBLE);
+
+CREATE TABLE IF NOT EXISTS invoice_items (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    invoice_id VARCHAR(255),
+    product VARCHAR(255),
+    quantity INT,
+    price DOUBLE);
@@ -0,0 +1,5 @@
+-- Índice para la paginación y el listado ordenados por (fecha, id)
+CREATE INDEX IF NOT EXISTS idx_invoices_date_id ON invoices (date, id);
+
+-- Búsqueda de los ítems de una factura sin recorrer toda la tabla
+CREATE INDEX IF NOT EXISTS idx_invoice_items_invoice_id ON invoice_items (invoice_id);
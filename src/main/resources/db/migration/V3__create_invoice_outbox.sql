@@ -0,0 +1,9 @@
+-- Outbox de eventos: se escribe en la misma transacción que la factura
+CREATE TABLE IF NOT EXISTS invoice_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    invoice_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    delivered_at TIMESTAMP);
+
+-- El relay busca las entradas pendientes en orden de id
+CREATE INDEX IF NOT EXISTS idx_outbox_pending ON invoice_outbox (delivered_at, id);
@@ -4,15 +4,36 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.SwingUtilities;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedStatic;
 
 public class MainTest {
 
+    @TempDir
+    Path dataDir;
+
+    @BeforeEach
+    void setUp() {
+        // Keep the database and the event journal out of the user's home and tmp directories
+        System.setProperty(Main.DATABASE_FILE_PROPERTY, dataDir.resolve("invoices").toString());
+        System.setProperty(Main.EVENT_JOURNAL_DIR_PROPERTY, dataDir.resolve("events").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(Main.DATABASE_FILE_PROPERTY);
+        System.clearProperty(Main.EVENT_JOURNAL_DIR_PROPERTY);
+    }
+
     @Test
     void testMainSchedulesRunnable() {
         // Use Mockito's inline static mocking for SwingUtilities.
@@ -23,6 +44,13 @@ public class MainTest {
             // Runnable.
             mockedSwing.verify(() -> SwingUtilities.invokeLater(any(Runnable.class)), times(1));
         }
+        assertTrue(Files.exists(dataDir.resolve("invoices.mv.db")), "The database should be created where configured");
+    }
+
+    @Test
+    void testDatabaseWritesEachCommitBeforeReturning() {
+        // The outbox and the relay's delivered marks must survive a crash right after the commit
+        assertEquals(0, Main.databaseConfig().getWriteDelayMillis());
     }
 
     @Test
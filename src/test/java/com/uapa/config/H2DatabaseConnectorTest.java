@@ -1,12 +1,17 @@
 package com.uapa.config;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 public class H2DatabaseConnectorTest {
 
@@ -37,4 +42,61 @@ public class H2DatabaseConnectorTest {
             fail("Se produjo una SQLException: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testSchemaReady_completesOnceMigrationsAreApplied() throws Exception {
+        H2DatabaseConnector connector = new H2DatabaseConnector(
+                H2DatabaseConfig.builder().memoryName("schema-ready").build());
+
+        connector.getSchemaReady().get(5, TimeUnit.SECONDS);
+        try (Connection connection = connector.getConnection();
+                ResultSet rs = connection.getMetaData().getTables(null, null, "INVOICE_OUTBOX", null)) {
+            assertTrue(rs.next(), "La tabla INVOICE_OUTBOX debería existir");
+        }
+    }
+
+    @Test
+    public void testFileMode_buildsUrlWithTuningOptions(@TempDir Path dir) {
+        String url = H2DatabaseConnector.buildUrl(H2DatabaseConfig.builder()
+                .mode(H2DatabaseConfig.Mode.FILE)
+                .file(dir.resolve("invoices"))
+                .cacheSizeKb(8192)
+                .writeDelayMillis(100)
+                .pageSize(8192)
+                .compress(true)
+                .build());
+
+        assertTrue(url.startsWith("jdbc:h2:file:" + dir.resolve("invoices").toAbsolutePath()));
+        assertTrue(url.contains(";CACHE_SIZE=8192;WRITE_DELAY=100;PAGE_SIZE=8192;COMPRESS=TRUE"), url);
+    }
+
+    @Test
+    public void testFileMode_requiresFilePath() {
+        H2DatabaseConfig config = H2DatabaseConfig.builder().mode(H2DatabaseConfig.Mode.FILE).build();
+        assertThrows(IllegalArgumentException.class, () -> new H2DatabaseConnector(config));
+    }
+
+    @Test
+    public void testFileMode_keepsDataAcrossRestartsAndCompactsOnStartup(@TempDir Path dir) throws SQLException {
+        H2DatabaseConfig config = H2DatabaseConfig.builder()
+                .mode(H2DatabaseConfig.Mode.FILE)
+                .file(dir.resolve("invoices"))
+                .cacheSizeKb(1024)
+                .compress(true)
+                .compactOnStartup(true)
+                .build();
+        try (Connection connection = new H2DatabaseConnector(config).getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO invoices VALUES ('F-1', DATE '2025-01-01', 10.0)");
+        }
+
+        // Al reabrir se compacta el fichero y la factura sigue ahí
+        try (Connection connection = new H2DatabaseConnector(config).getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT total FROM invoices WHERE id = 'F-1'")) {
+            assertTrue(rs.next(), "La factura debería sobrevivir al reinicio");
+            assertEquals(10.0, rs.getDouble(1), 0.0001);
+        }
+        assertTrue(Files.exists(dir.resolve("invoices.mv.db")));
+    }
 }
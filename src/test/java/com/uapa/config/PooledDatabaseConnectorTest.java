@@ -0,0 +1,113 @@
+package com.uapa.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledDatabaseConnectorTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+
+    private AtomicInteger physicalConnections;
+    private DatabaseConnector source;
+    private PooledDatabaseConnector pool;
+
+    @BeforeEach
+    void setUp() {
+        physicalConnections = new AtomicInteger();
+        // Source connector that counts how many physical connections are opened
+        source = () -> {
+            try {
+                physicalConnections.incrementAndGet();
+                return DriverManager.getConnection(JDBC_URL, "", "");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testConnectionIsReusedAfterClose() throws SQLException {
+        pool = new PooledDatabaseConnector(source, ConnectionPoolConfig.builder().maxSize(2).build());
+
+        try (Connection first = pool.getConnection()) {
+            assertFalse(first.isClosed());
+        }
+        try (Connection second = pool.getConnection()) {
+            assertFalse(second.isClosed());
+        }
+
+        assertEquals(1, physicalConnections.get(), "The physical connection should be reused");
+        ConnectionPoolStats stats = pool.getStats();
+        assertEquals(0, stats.getActive());
+        assertEquals(1, stats.getIdle());
+        assertEquals(2, stats.getBorrowCount());
+    }
+
+    @Test
+    void testClosedProxyRejectsFurtherUse() throws SQLException {
+        pool = new PooledDatabaseConnector(source);
+        Connection connection = pool.getConnection();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, connection::createStatement);
+    }
+
+    @Test
+    void testBorrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        pool = new PooledDatabaseConnector(source, ConnectionPoolConfig.builder()
+                .maxSize(1)
+                .borrowTimeout(Duration.ofMillis(100))
+                .build());
+
+        try (Connection held = pool.getConnection()) {
+            RuntimeException ex = assertThrows(RuntimeException.class, pool::getConnection);
+            assertTrue(ex.getMessage().contains("Timed out"));
+            assertEquals(1, pool.getStats().getActive());
+            assertEquals(1, pool.getStats().getTimeoutCount());
+        }
+    }
+
+    @Test
+    void testInvalidIdleConnectionIsDiscardedOnBorrow() throws SQLException {
+        pool = new PooledDatabaseConnector(source);
+        Connection connection = pool.getConnection();
+        // Close the physical connection behind the pool's back
+        connection.unwrap(Connection.class).close();
+        connection.close();
+
+        try (Connection fresh = pool.getConnection()) {
+            assertTrue(fresh.isValid(1));
+        }
+        assertEquals(2, physicalConnections.get());
+    }
+
+    @Test
+    void testIdleConnectionsAreEvicted() throws SQLException {
+        pool = new PooledDatabaseConnector(source, ConnectionPoolConfig.builder()
+                .idleTimeout(Duration.ZERO)
+                .build());
+        pool.getConnection().close();
+        assertEquals(1, pool.getStats().getIdle());
+
+        pool.evictIdle();
+
+        assertEquals(0, pool.getStats().getIdle());
+    }
+}
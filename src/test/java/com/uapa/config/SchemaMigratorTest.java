@@ -0,0 +1,134 @@
+package com.uapa.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:migrations;DB_CLOSE_DELAY=-1";
+
+    private DatabaseConnector connector;
+
+    @BeforeEach
+    void setUp() {
+        connector = () -> {
+            try {
+                return DriverManager.getConnection(JDBC_URL, "", "");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void testMigrationsAreAppliedInOrderOnlyOnce() throws Exception {
+        List<SchemaMigration> migrations = List.of(
+                SchemaMigration.of(2, "add column", "ALTER TABLE notes ADD COLUMN body VARCHAR(255);"),
+                SchemaMigration.of(1, "create notes", "-- Notes table\nCREATE TABLE notes (\n  id INT PRIMARY KEY);\n"));
+
+        new SchemaMigrator(connector, migrations).migrate().get(5, TimeUnit.SECONDS);
+        // A second startup finds both versions in the history and applies nothing
+        new SchemaMigrator(connector, migrations).migrate().get(5, TimeUnit.SECONDS);
+
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO notes (id, body) VALUES (1, 'hello')");
+        }
+        assertEquals(List.of(1, 2), appliedVersions());
+    }
+
+    @Test
+    void testChangedScriptOfAppliedMigrationIsRejected() {
+        new SchemaMigrator(connector, List.of(
+                SchemaMigration.of(1, "create notes", "CREATE TABLE notes (id INT PRIMARY KEY);"))).migrate();
+
+        SchemaMigrator changed = new SchemaMigrator(connector, List.of(
+                SchemaMigration.of(1, "create notes", "CREATE TABLE notes (id BIGINT PRIMARY KEY);")));
+
+        SchemaMigrationException ex = assertThrows(SchemaMigrationException.class, changed::migrate);
+        assertTrue(ex.getMessage().contains("V1"), ex.getMessage());
+    }
+
+    @Test
+    void testOnlineIndexIsBuiltAfterStartupMigrations() throws Exception {
+        List<SchemaMigration> migrations = List.of(
+                SchemaMigration.of(1, "create notes", "CREATE TABLE notes (id INT PRIMARY KEY, author VARCHAR(50));"),
+                SchemaMigration.of(2, "index authors",
+                        SchemaMigration.ONLINE_DIRECTIVE + "\nCREATE INDEX idx_notes_author ON notes (author);"),
+                SchemaMigration.of(3, "create tags", "CREATE TABLE tags (id INT PRIMARY KEY);"));
+
+        new SchemaMigrator(connector, migrations).migrate().get(5, TimeUnit.SECONDS);
+
+        assertTrue(migrations.get(1).isOnline());
+        assertEquals(List.of(1, 2, 3), appliedVersions());
+        try (Connection connection = connector.getConnection();
+                ResultSet rs = connection.getMetaData().getIndexInfo(null, null, "NOTES", false, false)) {
+            List<String> indexes = new ArrayList<>();
+            while (rs.next()) {
+                indexes.add(rs.getString("INDEX_NAME"));
+            }
+            assertTrue(indexes.contains("IDX_NOTES_AUTHOR"), "Indexes: " + indexes);
+        }
+    }
+
+    @Test
+    void testFailedMigrationIsNotRecorded() {
+        SchemaMigrator migrator = new SchemaMigrator(connector, List.of(
+                SchemaMigration.of(1, "broken", "CREATE TABLE notes (id INT PRIMARY KEY);\nINSERT INTO missing VALUES (1);")));
+
+        assertThrows(SchemaMigrationException.class, migrator::migrate);
+        assertEquals(List.of(), appliedVersions());
+    }
+
+    @Test
+    void testDuplicateVersionsAreRejected() {
+        List<SchemaMigration> migrations = List.of(
+                SchemaMigration.of(1, "a", "CREATE TABLE a (id INT);"),
+                SchemaMigration.of(1, "b", "CREATE TABLE b (id INT);"));
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(connector, migrations));
+    }
+
+    @Test
+    void testBundledMigrationsLoadInVersionOrder() {
+        List<SchemaMigration> migrations = SchemaMigrations.all();
+        for (int i = 0; i < migrations.size(); i++) {
+            assertEquals(i + 1, migrations.get(i).getVersion());
+            assertFalse(migrations.get(i).getStatements().isEmpty());
+        }
+    }
+
+    private List<Integer> appliedVersions() {
+        List<Integer> versions = new ArrayList<>();
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "SELECT version FROM " + SchemaMigrator.HISTORY_TABLE + " ORDER BY version")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return versions;
+    }
+}
@@ -2,6 +2,9 @@ package com.uapa.controller;
 
 import com.uapa.model.Invoice;
 import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoicePage;
+import com.uapa.model.InvoicePageKey;
+import com.uapa.service.InvoicePriority;
 import com.uapa.service.InvoiceService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,7 @@ import org.mockito.ArgumentCaptor;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -59,9 +63,9 @@ class InvoiceControllerTest {
         // When
         controller.generateRealInvoice(items);
 
-        // Then
+        // Then - invoices typed in by the user go through the interactive lane
         ArgumentCaptor<Invoice> invoiceCaptor = ArgumentCaptor.forClass(Invoice.class);
-        verify(mockService, times(1)).createInvoice(invoiceCaptor.capture());
+        verify(mockService, times(1)).createInvoice(invoiceCaptor.capture(), eq(InvoicePriority.INTERACTIVE));
 
         Invoice captured = invoiceCaptor.getValue();
         assertNotNull(captured, "Invoice passed to the service should not be null");
@@ -100,4 +104,33 @@ class InvoiceControllerTest {
         // And verify the service was called
         verify(mockService, times(1)).getAllInvoices();
     }
+
+    @Test
+    void testGenerateRealInvoiceAsync_returnsServiceFuture() {
+        InvoiceItem item = InvoiceItem.builder()
+                .product("Async Product")
+                .quantity(3)
+                .price(5.0)
+                .build();
+        CompletableFuture<Invoice> serviceFuture = new CompletableFuture<>();
+        when(mockService.createInvoiceAsync(any(Invoice.class), eq(InvoicePriority.INTERACTIVE)))
+                .thenReturn(serviceFuture);
+
+        CompletableFuture<Invoice> result = controller.generateRealInvoiceAsync(List.of(item));
+
+        assertSame(serviceFuture, result);
+        ArgumentCaptor<Invoice> invoiceCaptor = ArgumentCaptor.forClass(Invoice.class);
+        verify(mockService, times(1)).createInvoiceAsync(invoiceCaptor.capture(), eq(InvoicePriority.INTERACTIVE));
+        assertEquals(15.0, invoiceCaptor.getValue().getTotal(), 0.0001);
+    }
+
+    @Test
+    void testFindPage_delegatesToService() {
+        InvoicePageKey afterKey = new InvoicePageKey(LocalDate.of(2025, 1, 1), "INV-1");
+        InvoicePage page = new InvoicePage(Collections.emptyList(), null);
+        when(mockService.findPage(afterKey, 50)).thenReturn(page);
+
+        assertSame(page, controller.findPage(afterKey, 50));
+        verify(mockService, times(1)).findPage(afterKey, 50);
+    }
 }
@@ -0,0 +1,125 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import com.uapa.observer.InvoiceObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InvoiceEventBusTest {
+
+    private InvoiceEventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new InvoiceEventBus();
+    }
+
+    @Test
+    void testSubscribersOnlyReceiveTheirEventTypes() {
+        List<InvoiceEvent> saved = new ArrayList<>();
+        List<InvoiceEvent> failures = new ArrayList<>();
+        bus.subscribe(InvoiceEventFilter.of(InvoiceEventType.SAVED), saved::add);
+        bus.subscribe(InvoiceEventFilter.of(InvoiceEventType.FAILED), failures::add);
+
+        bus.publishInvoiceCreated(invoice("A", 10.0, 1));
+        bus.publishEvent(InvoiceEvent.failed(invoice("B", 10.0, 1), new IllegalStateException("db down")));
+        bus.publishEvent(InvoiceEvent.batchImported(List.of(invoice("C", 10.0, 1))));
+
+        assertEquals(List.of("A"), ids(saved));
+        assertEquals(List.of("B"), ids(failures));
+        assertEquals("db down", failures.get(0).getCause().getMessage());
+    }
+
+    @Test
+    void testTotalAndDateFiltersIncludingStrictBounds() {
+        List<InvoiceEvent> large = new ArrayList<>();
+        List<InvoiceEvent> exactlyHundred = new ArrayList<>();
+        List<InvoiceEvent> march = new ArrayList<>();
+        bus.subscribe(InvoiceEventFilter.builder().minTotal(1000.0).minTotalInclusive(false).build(), large::add);
+        bus.subscribe(InvoiceEventFilter.builder().minTotal(100.0).maxTotal(100.0).build(), exactlyHundred::add);
+        bus.subscribe(InvoiceEventFilter.builder()
+                .fromDate(LocalDate.of(2025, 3, 1))
+                .toDate(LocalDate.of(2025, 3, 31))
+                .build(), march::add);
+
+        bus.publishInvoiceCreated(invoice("T-1000", 1000.0, 3));
+        bus.publishInvoiceCreated(invoice("T-1500", 1500.0, 4));
+        bus.publishInvoiceCreated(invoice("T-100", 100.0, 3));
+        bus.publishInvoiceCreated(invoice("T-99", 99.99, 2));
+
+        assertEquals(List.of("T-1500"), ids(large));
+        assertEquals(List.of("T-100"), ids(exactlyHundred));
+        assertEquals(List.of("T-1000", "T-100"), ids(march));
+    }
+
+    @Test
+    void testBatchEventsAreSplitPerSubscriber() {
+        List<InvoiceEvent> large = new ArrayList<>();
+        List<InvoiceEvent> all = new ArrayList<>();
+        bus.subscribe(InvoiceEventFilter.builder()
+                .type(InvoiceEventType.BATCH_IMPORTED)
+                .minTotal(500.0)
+                .build(), large::add);
+        bus.subscribe(InvoiceEventFilter.all(), all::add);
+
+        InvoiceEvent batch = InvoiceEvent.batchImported(List.of(
+                invoice("I-1", 100.0, 1), invoice("I-2", 600.0, 1), invoice("I-3", 900.0, 1)));
+        bus.publishEvent(batch);
+
+        assertEquals(1, large.size());
+        assertEquals(List.of("I-2", "I-3"), large.get(0).getInvoices().stream()
+                .map(Invoice::getId).collect(Collectors.toList()));
+        assertSame(batch, all.get(0));
+    }
+
+    @Test
+    void testWherePredicateObserverAdapterAndUnsubscribe() {
+        InvoiceObserver observer = mock(InvoiceObserver.class);
+        InvoiceEventBus.Subscription subscription = bus.subscribeObserver(InvoiceEventFilter.builder()
+                .type(InvoiceEventType.SAVED)
+                .where(invoice -> invoice.getId().startsWith("VIP"))
+                .build(), observer);
+
+        Invoice vip = invoice("VIP-1", 5.0, 1);
+        bus.publishInvoiceCreated(vip);
+        bus.publishInvoiceCreated(invoice("STD-1", 5.0, 1));
+        bus.unsubscribe(subscription);
+        bus.publishInvoiceCreated(invoice("VIP-2", 5.0, 1));
+
+        verify(observer, times(1)).update(any(Invoice.class));
+        verify(observer).update(vip);
+    }
+
+    @Test
+    void testFailingSubscriberDoesNotStopOthers() {
+        List<InvoiceEvent> received = new ArrayList<>();
+        bus.subscribe(InvoiceEventFilter.all(), event -> {
+            throw new IllegalStateException("boom");
+        });
+        bus.subscribe(InvoiceEventFilter.all(), received::add);
+
+        bus.publishInvoiceCreated(invoice("X", 1.0, 1));
+
+        assertEquals(1, received.size());
+    }
+
+    private static List<String> ids(List<InvoiceEvent> events) {
+        return events.stream().map(event -> event.getInvoice().getId()).collect(Collectors.toList());
+    }
+
+    private static Invoice invoice(String id, double total, int month) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, month, 15))
+                .total(total)
+                .build();
+    }
+}
@@ -0,0 +1,233 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceEventJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppend_assignsIncreasingOffsetsAndReplaysFromAnyOffset() {
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, EventJournalConfig.defaults())) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i, journal.append(invoice("J-" + i)));
+            }
+
+            List<Invoice> replayed = new ArrayList<>();
+            long next = journal.replay(2, replayed::add);
+
+            assertEquals(5, next);
+            assertEquals(List.of("J-2", "J-3", "J-4"), ids(replayed));
+            assertEquals(1, replayed.get(0).getItems().size());
+            assertEquals("Café ñandú", replayed.get(0).getItems().get(0).getProduct());
+            assertEquals(LocalDate.of(2025, 4, 1), replayed.get(0).getDate());
+        }
+    }
+
+    @Test
+    void testReopen_recoversEventsAndContinuesOffsets() {
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, EventJournalConfig.defaults())) {
+            journal.append(invoice("R-0"));
+            journal.append(invoice("R-1"));
+        }
+
+        try (InvoiceEventJournal reopened = new InvoiceEventJournal(directory, EventJournalConfig.defaults())) {
+            assertEquals(2, reopened.getNextOffset());
+            assertEquals(2, reopened.append(invoice("R-2")));
+            List<Invoice> replayed = new ArrayList<>();
+            reopened.replay(0, replayed::add);
+            assertEquals(List.of("R-0", "R-1", "R-2"), ids(replayed));
+        }
+    }
+
+    @Test
+    void testReopen_discardsTornRecord() throws Exception {
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, EventJournalConfig.defaults())) {
+            journal.append(invoice("T-0"));
+            journal.append(invoice("T-1"));
+        }
+        // Corrupt the payload of the second record
+        Path segment = segments().get(0);
+        int secondRecord = 16 + InvoiceEventJournal.encode(invoice("T-0")).length;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondRecord + 20);
+            file.write(0x7F);
+        }
+
+        try (InvoiceEventJournal reopened = new InvoiceEventJournal(directory, EventJournalConfig.defaults())) {
+            assertEquals(1, reopened.getNextOffset());
+            assertEquals(1, reopened.append(invoice("T-1b")));
+            List<Invoice> replayed = new ArrayList<>();
+            reopened.replay(0, replayed::add);
+            assertEquals(List.of("T-0", "T-1b"), ids(replayed));
+        }
+    }
+
+    @Test
+    void testSegmentRolling_andSizeRetention() throws Exception {
+        int recordBytes = 16 + InvoiceEventJournal.encode(invoice("S-00")).length;
+        EventJournalConfig config = EventJournalConfig.builder()
+                .segmentBytes(recordBytes * 3)
+                .maxTotalBytes(recordBytes * 3 * 2L)
+                .build();
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, config)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(invoice(String.format("S-%02d", i)));
+            }
+
+            // 10 records of 3 per segment: 4 segments, only the last 2 are kept
+            assertEquals(2, journal.getSegmentCount());
+            assertEquals(2, segments().size());
+            assertEquals(6, journal.getFirstOffset());
+            List<Invoice> replayed = new ArrayList<>();
+            assertEquals(10, journal.replay(0, replayed::add));
+            assertEquals(List.of("S-06", "S-07", "S-08", "S-09"), ids(replayed));
+        }
+    }
+
+    @Test
+    void testReopenWithSmallerSegments_keepsExistingSegmentIntact() throws Exception {
+        int recordBytes = 16 + InvoiceEventJournal.encode(invoice("L-00")).length;
+        EventJournalConfig large = EventJournalConfig.builder().segmentBytes(recordBytes * 4).build();
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, large)) {
+            for (int i = 0; i < 4; i++) {
+                journal.append(invoice(String.format("L-%02d", i)));
+            }
+        }
+
+        EventJournalConfig small = EventJournalConfig.builder().segmentBytes(recordBytes * 2).build();
+        try (InvoiceEventJournal reopened = new InvoiceEventJournal(directory, small)) {
+            // The existing segment is neither truncated nor remapped at the new size
+            assertEquals(recordBytes * 4L, Files.size(segments().get(0)));
+            assertEquals(4, reopened.getNextOffset());
+            reopened.append(invoice("L-04"));
+            assertEquals(2, reopened.getSegmentCount());
+            assertEquals(recordBytes * 2L, Files.size(segments().get(1)));
+            List<Invoice> replayed = new ArrayList<>();
+            reopened.replay(0, replayed::add);
+            assertEquals(List.of("L-00", "L-01", "L-02", "L-03", "L-04"), ids(replayed));
+        }
+    }
+
+    @Test
+    void testReopen_tornRecordInClosedSegmentEndsThatSegment() throws Exception {
+        int recordBytes = 16 + InvoiceEventJournal.encode(invoice("G-0")).length;
+        EventJournalConfig config = EventJournalConfig.builder().segmentBytes(recordBytes * 3).build();
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, config)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(invoice("G-" + i));
+            }
+        }
+        // Corrupt the second record of the first (closed) segment
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(recordBytes + 20);
+            file.write(0x7F);
+        }
+
+        try (InvoiceEventJournal reopened = new InvoiceEventJournal(directory, config)) {
+            assertEquals(5, reopened.getNextOffset());
+            List<Invoice> replayed = new ArrayList<>();
+            assertEquals(5, reopened.replay(0, replayed::add));
+            assertEquals(List.of("G-0", "G-3", "G-4"), ids(replayed));
+            replayed.clear();
+            reopened.replay(1, replayed::add);
+            assertEquals(List.of("G-3", "G-4"), ids(replayed));
+        }
+    }
+
+    @Test
+    void testTimeRetention_deletesExpiredSegments() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        int recordBytes = 16 + InvoiceEventJournal.encode(invoice("X-0")).length;
+        EventJournalConfig config = EventJournalConfig.builder()
+                .segmentBytes(recordBytes * 2)
+                .retention(Duration.ofHours(1))
+                .build();
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, config, clock)) {
+            journal.append(invoice("X-0"));
+            journal.append(invoice("X-1"));
+            journal.append(invoice("X-2"));
+            assertEquals(2, journal.getSegmentCount());
+
+            clock.advance(Duration.ofHours(2));
+            journal.applyRetention();
+
+            assertEquals(1, journal.getSegmentCount());
+            assertEquals(2, journal.getFirstOffset());
+        }
+    }
+
+    @Test
+    void testSecondJournalOnSameDirectory_isRejected() {
+        try (InvoiceEventJournal journal = new InvoiceEventJournal(directory, EventJournalConfig.defaults())) {
+            assertThrows(IllegalStateException.class,
+                    () -> new InvoiceEventJournal(directory, EventJournalConfig.defaults()));
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> ids(List<Invoice> invoices) {
+        return invoices.stream().map(Invoice::getId).collect(Collectors.toList());
+    }
+
+    private static Invoice invoice(String id) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, 4, 1))
+                .total(7.5)
+                .items(List.of(InvoiceItem.builder().product("Café ñandú").quantity(3).price(2.5).build()))
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
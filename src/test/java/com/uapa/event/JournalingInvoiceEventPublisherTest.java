@@ -0,0 +1,75 @@
+package com.uapa.event;
+
+import com.uapa.model.Invoice;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalingInvoiceEventPublisherTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLateSubscriber_replaysHistoryThenReceivesLiveEvents() {
+        InvoiceEventJournal journal = new InvoiceEventJournal(directory, EventJournalConfig.defaults());
+        try (JournalingInvoiceEventPublisher publisher =
+                new JournalingInvoiceEventPublisher(journal, new SimpleInvoiceEventPublisher())) {
+            List<String> early = new ArrayList<>();
+            publisher.subscribe(invoice -> early.add(invoice.getId()), 0);
+            publisher.publishInvoiceCreated(invoice("E-0"));
+            publisher.publishInvoiceCreated(invoice("E-1"));
+            publisher.publishInvoiceCreated(invoice("E-2"));
+
+            List<String> late = new ArrayList<>();
+            publisher.subscribe(invoice -> late.add(invoice.getId()), 1);
+            publisher.publishInvoiceCreated(invoice("E-3"));
+
+            assertEquals(List.of("E-0", "E-1", "E-2", "E-3"), early);
+            assertEquals(List.of("E-1", "E-2", "E-3"), late);
+            assertEquals(4, journal.getNextOffset());
+        }
+    }
+
+    @Test
+    void testSubscribeWhilePublishing_hasNoGapsOrDuplicates() throws InterruptedException {
+        InvoiceEventJournal journal = new InvoiceEventJournal(directory, EventJournalConfig.defaults());
+        try (JournalingInvoiceEventPublisher publisher = new JournalingInvoiceEventPublisher(journal,
+                new SimpleInvoiceEventPublisher(EventPublisherConfig.async()))) {
+            for (int i = 0; i < 500; i++) {
+                publisher.publishInvoiceCreated(invoice("C-" + i));
+            }
+            Thread producer = new Thread(() -> {
+                for (int i = 500; i < 1000; i++) {
+                    publisher.publishInvoiceCreated(invoice("C-" + i));
+                }
+            });
+            List<String> received = Collections.synchronizedList(new ArrayList<>());
+            producer.start();
+            publisher.subscribe(invoice -> received.add(invoice.getId()), 0);
+            producer.join();
+            publisher.close();
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                expected.add("C-" + i);
+            }
+            assertEquals(expected, new ArrayList<>(received));
+        }
+    }
+
+    private static Invoice invoice(String id) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, 4, 1))
+                .total(1.0)
+                .build();
+    }
+}
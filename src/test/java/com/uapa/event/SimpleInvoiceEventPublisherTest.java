@@ -1,12 +1,21 @@
 package com.uapa.event;
 
 import com.uapa.model.Invoice;
+import com.uapa.observer.InvoiceBatchObserver;
 import com.uapa.observer.InvoiceObserver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class SimpleInvoiceEventPublisherTest {
@@ -94,4 +103,309 @@ class SimpleInvoiceEventPublisherTest {
         // Should cause no errors, even though no observers are registered
         publisher.publishInvoiceCreated(testInvoice);
     }
+
+    @Test
+    void testAsyncMode_deliversAllEventsInOrderForEveryWaitStrategy() {
+        for (EventPublisherConfig.WaitStrategy strategy : EventPublisherConfig.WaitStrategy.values()) {
+            SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.builder()
+                    .mode(EventPublisherConfig.DispatchMode.ASYNC)
+                    .waitStrategy(strategy)
+                    .build());
+            // BLOCK with a generous timeout: nothing may be dropped while the queues wrap
+            ObserverConfig smallQueue = ObserverConfig.builder()
+                    .overflowPolicy(ObserverConfig.OverflowPolicy.BLOCK)
+                    .blockTimeout(Duration.ofSeconds(10))
+                    .queueCapacity(8)
+                    .build();
+            List<String> first = Collections.synchronizedList(new ArrayList<>());
+            List<String> second = Collections.synchronizedList(new ArrayList<>());
+            asyncPublisher.registerObserver(invoice -> first.add(invoice.getId()), smallQueue);
+            asyncPublisher.registerObserver(invoice -> second.add(invoice.getId()), smallQueue);
+
+            // Many more events than slots: the queues wrap several times
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                asyncPublisher.publishInvoiceCreated(invoice("INV-" + i));
+                expected.add("INV-" + i);
+            }
+            asyncPublisher.close();
+
+            assertEquals(expected, first, "Order for " + strategy);
+            assertEquals(expected, second, "Order for " + strategy);
+        }
+    }
+
+    @Test
+    void testAsyncMode_slowObserverDoesNotBlockPublisher() throws InterruptedException {
+        SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.builder()
+                .mode(EventPublisherConfig.DispatchMode.ASYNC)
+                .shutdownTimeout(Duration.ofSeconds(2))
+                .build());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(10);
+        asyncPublisher.registerObserver(invoice -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.countDown();
+        }, ObserverConfig.builder().queueCapacity(16).build());
+
+        // Fewer events than slots: publishing returns while the observer is stuck
+        for (int i = 0; i < 10; i++) {
+            asyncPublisher.publishInvoiceCreated(invoice("SLOW-" + i));
+        }
+        assertEquals(10, delivered.getCount());
+
+        release.countDown();
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        asyncPublisher.close();
+        assertThrows(IllegalStateException.class, () -> asyncPublisher.publishInvoiceCreated(invoice("LATE")));
+    }
+
+    @Test
+    void testAsyncMode_failingObserverDoesNotStopOthers() {
+        SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.async());
+        InvoiceObserver failing = mock(InvoiceObserver.class);
+        doThrow(new RuntimeException("boom")).when(failing).update(any(Invoice.class));
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        asyncPublisher.registerObserver(failing);
+        asyncPublisher.registerObserver(invoice -> received.add(invoice.getId()));
+
+        asyncPublisher.publishInvoiceCreated(invoice("A"));
+        asyncPublisher.publishInvoiceCreated(invoice("B"));
+        asyncPublisher.close();
+
+        verify(failing, times(2)).update(any(Invoice.class));
+        assertEquals(List.of("A", "B"), received);
+    }
+
+    @Test
+    void testQueueCapacity_mustBePowerOfTwo() {
+        SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.async());
+        assertThrows(IllegalArgumentException.class, () -> asyncPublisher.registerObserver(
+                mock(InvoiceObserver.class), ObserverConfig.builder().queueCapacity(10).build()));
+        asyncPublisher.close();
+    }
+
+    @Test
+    void testSyncMode_failingObserverDoesNotStopOthers() {
+        InvoiceObserver failing = mock(InvoiceObserver.class);
+        doThrow(new RuntimeException("boom")).when(failing).update(any(Invoice.class));
+        InvoiceObserver observerMock = mock(InvoiceObserver.class);
+        publisher.registerObserver(failing);
+        publisher.registerObserver(observerMock);
+
+        Invoice testInvoice = invoice("INV-5005");
+        publisher.publishInvoiceCreated(testInvoice);
+
+        verify(observerMock, times(1)).update(testInvoice);
+        assertTrue(publisher.getObserverStats(observerMock).isEmpty());
+    }
+
+    @Test
+    void testOverflowPolicies_onlyAffectTheSlowObserver() throws InterruptedException {
+        assertOverflow(ObserverConfig.OverflowPolicy.DROP_NEWEST, List.of("E0", "E1", "E2", "E3", "E4"), 6, 4);
+        assertOverflow(ObserverConfig.OverflowPolicy.DROP_OLDEST, List.of("E0", "E7", "E8", "E9", "E10"), 6, 4);
+        assertOverflow(ObserverConfig.OverflowPolicy.COALESCE, List.of("E0", "E1", "E2", "E3", "E4", "E10"), 5, 5);
+    }
+
+    private void assertOverflow(ObserverConfig.OverflowPolicy policy, List<String> expectedSlow,
+            long expectedDropped, long expectedLag) throws InterruptedException {
+        SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.async());
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> slow = Collections.synchronizedList(new ArrayList<>());
+        List<String> fast = Collections.synchronizedList(new ArrayList<>());
+        InvoiceObserver slowObserver = invoice -> {
+            firstReceived.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slow.add(invoice.getId());
+        };
+        asyncPublisher.registerObserver(slowObserver, ObserverConfig.builder()
+                .overflowPolicy(policy)
+                .queueCapacity(4)
+                .build());
+        asyncPublisher.registerObserver(invoice -> fast.add(invoice.getId()));
+
+        // The slow observer takes E0 and blocks; E1..E10 overflow its queue of 4
+        asyncPublisher.publishInvoiceCreated(invoice("E0"));
+        assertTrue(firstReceived.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            asyncPublisher.publishInvoiceCreated(invoice("E" + i));
+        }
+
+        ObserverStats blocked = asyncPublisher.getObserverStats(slowObserver).orElseThrow();
+        assertEquals(expectedLag, blocked.getLag(), "Lag for " + policy);
+        assertEquals(expectedDropped, blocked.getDropped(), "Dropped for " + policy);
+
+        release.countDown();
+        asyncPublisher.close();
+
+        assertEquals(expectedSlow, slow, "Delivered to the slow observer for " + policy);
+        assertEquals(11, fast.size(), "The fast observer must receive every event for " + policy);
+    }
+
+    @Test
+    void testBlockPolicy_stalledObserverOnlyDelaysPublisherUpToTheTimeout() throws InterruptedException {
+        SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.async());
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InvoiceObserver stalled = invoice -> {
+            firstReceived.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        asyncPublisher.registerObserver(stalled, ObserverConfig.builder()
+                .overflowPolicy(ObserverConfig.OverflowPolicy.BLOCK)
+                .blockTimeout(Duration.ofMillis(20))
+                .queueCapacity(2)
+                .build());
+        List<String> fast = Collections.synchronizedList(new ArrayList<>());
+        asyncPublisher.registerObserver(invoice -> fast.add(invoice.getId()));
+
+        asyncPublisher.publishInvoiceCreated(invoice("B0"));
+        assertTrue(firstReceived.await(2, TimeUnit.SECONDS));
+        // B1 and B2 fill the queue; B3 and B4 each wait for the timeout and are dropped
+        long start = System.nanoTime();
+        for (int i = 1; i <= 4; i++) {
+            asyncPublisher.publishInvoiceCreated(invoice("B" + i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis >= 40, "Each overflowing event waits for the timeout: " + elapsedMillis);
+        assertTrue(elapsedMillis < 2000, "The wait must be bounded: " + elapsedMillis);
+        assertEquals(2, asyncPublisher.getObserverStats(stalled).orElseThrow().getDropped());
+
+        release.countDown();
+        asyncPublisher.close();
+        assertEquals(List.of("B0", "B1", "B2", "B3", "B4"), fast);
+    }
+
+    @Test
+    void testObserverStats_recordDeliveriesAndHandlerLatency() throws InterruptedException {
+        SimpleInvoiceEventPublisher asyncPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.async());
+        CountDownLatch delivered = new CountDownLatch(3);
+        InvoiceObserver observer = invoice -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.countDown();
+        };
+        asyncPublisher.registerObserver(observer);
+
+        for (int i = 0; i < 3; i++) {
+            asyncPublisher.publishInvoiceCreated(invoice("S-" + i));
+        }
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        ObserverStats stats = asyncPublisher.getObserverStats(observer).orElseThrow();
+        while (stats.getDelivered() < 3) {
+            Thread.sleep(1);
+            stats = asyncPublisher.getObserverStats(observer).orElseThrow();
+        }
+        asyncPublisher.close();
+
+        assertEquals(0, stats.getLag());
+        assertEquals(0, stats.getDropped());
+        assertEquals(0, stats.getFailed());
+        assertTrue(stats.getAverageHandlerMillis() >= 5.0);
+        assertTrue(stats.getMaxHandlerMillis() >= stats.getAverageHandlerMillis());
+    }
+
+    @Test
+    void testBatchedMode_deliversBatchesBoundedByCount() {
+        SimpleInvoiceEventPublisher batchedPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.builder()
+                .mode(EventPublisherConfig.DispatchMode.BATCHED)
+                .maxBatchSize(4)
+                .maxBatchDelay(Duration.ofSeconds(10))
+                .build());
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        InvoiceBatchObserver observer = invoices -> batches.add(
+                invoices.stream().map(Invoice::getId).collect(Collectors.toList()));
+        batchedPublisher.registerObserver(observer);
+
+        for (int i = 0; i < 10; i++) {
+            batchedPublisher.publishInvoiceCreated(invoice("B-" + i));
+        }
+        // Closing flushes the incomplete last batch without waiting for the delay
+        batchedPublisher.close();
+
+        assertEquals(List.of(
+                List.of("B-0", "B-1", "B-2", "B-3"),
+                List.of("B-4", "B-5", "B-6", "B-7"),
+                List.of("B-8", "B-9")), batches);
+    }
+
+    @Test
+    void testBatchedMode_flushesPartialBatchAfterMaxDelay() throws InterruptedException {
+        SimpleInvoiceEventPublisher batchedPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.builder()
+                .mode(EventPublisherConfig.DispatchMode.BATCHED)
+                .maxBatchSize(100)
+                .maxBatchDelay(Duration.ofMillis(50))
+                .build());
+        CountDownLatch received = new CountDownLatch(1);
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        InvoiceBatchObserver observer = invoices -> {
+            sizes.add(invoices.size());
+            received.countDown();
+        };
+        batchedPublisher.registerObserver(observer);
+
+        for (int i = 0; i < 3; i++) {
+            batchedPublisher.publishInvoiceCreated(invoice("D-" + i));
+        }
+
+        assertTrue(received.await(2, TimeUnit.SECONDS), "The partial batch should be delivered after the delay");
+        assertEquals(List.of(3), sizes);
+        // Stats are recorded once the handler returns, just after the latch opens
+        long deadline = System.currentTimeMillis() + 2000;
+        ObserverStats stats = batchedPublisher.getObserverStats(observer).orElseThrow();
+        while (stats.getDelivered() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            stats = batchedPublisher.getObserverStats(observer).orElseThrow();
+        }
+        assertEquals(3.0, stats.getAverageBatchSize(), 0.0001);
+        batchedPublisher.close();
+    }
+
+    @Test
+    void testBatchedMode_singleEventObserversStillReceiveEveryEvent() {
+        SimpleInvoiceEventPublisher batchedPublisher = new SimpleInvoiceEventPublisher(EventPublisherConfig.batched());
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        batchedPublisher.registerObserver(invoice -> received.add(invoice.getId()));
+
+        batchedPublisher.publishInvoiceCreated(invoice("U-0"));
+        batchedPublisher.publishInvoiceCreated(invoice("U-1"));
+        batchedPublisher.close();
+
+        assertEquals(List.of("U-0", "U-1"), received);
+    }
+
+    @Test
+    void testSyncMode_batchObserverReceivesSingletonBatches() {
+        List<Integer> sizes = new ArrayList<>();
+        publisher.registerObserver((InvoiceBatchObserver) invoices -> sizes.add(invoices.size()));
+
+        publisher.publishInvoiceCreated(invoice("S-0"));
+
+        assertEquals(List.of(1), sizes);
+    }
+
+    private static Invoice invoice(String id) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.now())
+                .total(1.0)
+                .build();
+    }
 }
@@ -11,16 +11,19 @@ import com.uapa.service.InvoiceService;
 import com.uapa.service.InvoiceServiceImpl;
 import com.uapa.view.InvoiceListView;
 import com.uapa.view.InvoiceRealView;
+import com.uapa.view.InvoiceTableModel;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,22 +37,9 @@ public class EndToEndTest {
 
     @BeforeEach
     public void setup() throws Exception {
-        // Initialize the H2 in-memory database connector for testing
+        // Initialize the H2 in-memory database connector for testing;
+        // it applies the schema migrations on startup
         connector = new H2DatabaseConnector();
-        // Create necessary tables
-        try (Connection connection = connector.getConnection();
-                Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS invoices (" +
-                    "id VARCHAR(50) PRIMARY KEY, " +
-                    "date DATE NOT NULL, " +
-                    "total DOUBLE NOT NULL)");
-            stmt.execute("CREATE TABLE IF NOT EXISTS invoice_items (" +
-                    "id INTEGER AUTO_INCREMENT PRIMARY KEY, " +
-                    "invoice_id VARCHAR(50) NOT NULL, " +
-                    "product VARCHAR(100) NOT NULL, " +
-                    "quantity INT NOT NULL, " +
-                    "price DOUBLE NOT NULL)");
-        }
         repository = new InvoiceRepositoryImpl(connector);
         eventPublisher = new SimpleInvoiceEventPublisher();
         service = new InvoiceServiceImpl(repository, eventPublisher);
@@ -58,11 +48,10 @@ public class EndToEndTest {
 
     @AfterEach
     public void tearDown() throws Exception {
-        // Drop tables so each test is independent.
+        // Drop everything, migration history included, so each test is independent.
         try (Connection connection = connector.getConnection();
                 Statement stmt = connection.createStatement()) {
-            stmt.execute("DROP TABLE IF EXISTS invoice_items");
-            stmt.execute("DROP TABLE IF EXISTS invoices");
+            stmt.execute("DROP ALL OBJECTS");
         }
     }
 
@@ -118,13 +107,29 @@ public class EndToEndTest {
         assertEquals(30.0, createdInvoice.getTotal(), 0.0001, "Invoice total should be calculated correctly");
 
         // Step 2: Use InvoiceListView to display the stored invoice.
+        AtomicReference<InvoiceListView> listViewRef = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> {
+            InvoiceListView listView = new InvoiceListView(controller);
+            listView.setVisible(true);
+            listViewRef.set(listView);
+        });
+
+        // The list is loaded off the EDT; wait for the background load to finish.
+        InvoiceTableModel loadingModel = getPrivateField(listViewRef.get(), "tableModel", InvoiceTableModel.class);
+        AtomicBoolean loading = new AtomicBoolean(true);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loading.get() && System.currentTimeMillis() < deadline) {
+            SwingUtilities.invokeAndWait(() -> loading.set(loadingModel.isLoading()));
+            Thread.sleep(10);
+        }
+        assertFalse(loading.get(), "Invoice list should finish loading");
+
         SwingUtilities.invokeAndWait(() -> {
             try {
-                InvoiceListView listView = new InvoiceListView(controller);
-                listView.setVisible(true);
+                InvoiceListView listView = listViewRef.get();
 
-                // Access the private DefaultTableModel via reflection.
-                DefaultTableModel tableModel = getPrivateField(listView, "tableModel", DefaultTableModel.class);
+                // Access the private table model via reflection.
+                TableModel tableModel = getPrivateField(listView, "tableModel", TableModel.class);
 
                 // Check that at least one row is present.
                 assertTrue(tableModel.getRowCount() > 0, "Invoice list should contain at least one row");
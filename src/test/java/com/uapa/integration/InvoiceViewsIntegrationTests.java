@@ -47,35 +47,20 @@ class InvoiceViewsIntegrationTests {
     @BeforeEach
     void setupIntegration() throws SQLException {
         // Initialize the in-memory H2 database and necessary components.
+        // The connector applies the schema migrations on startup.
         connector = new H2DatabaseConnector();
         repository = new InvoiceRepositoryImpl(connector);
         eventPublisher = new SimpleInvoiceEventPublisher();
         service = new InvoiceServiceImpl(repository, eventPublisher);
         controller = new InvoiceController(service);
-
-        // Ensure required tables exist.
-        try (Connection connection = connector.getConnection();
-                Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS invoices (" +
-                    "id VARCHAR(50) PRIMARY KEY, " +
-                    "date DATE NOT NULL, " +
-                    "total DOUBLE NOT NULL)");
-            stmt.execute("CREATE TABLE IF NOT EXISTS invoice_items (" +
-                    "id INTEGER AUTO_INCREMENT PRIMARY KEY, " +
-                    "invoice_id VARCHAR(50) NOT NULL, " +
-                    "product VARCHAR(100) NOT NULL, " +
-                    "quantity INT NOT NULL, " +
-                    "price DOUBLE NOT NULL)");
-        }
     }
 
     @AfterEach
     void tearDownIntegration() throws SQLException {
-        // Clean up tables so tests remain independent.
+        // Drop everything, migration history included, so tests remain independent.
         try (Connection connection = connector.getConnection();
                 Statement stmt = connection.createStatement()) {
-            stmt.execute("DROP TABLE IF EXISTS invoice_items");
-            stmt.execute("DROP TABLE IF EXISTS invoices");
+            stmt.execute("DROP ALL OBJECTS");
         }
     }
 
@@ -5,7 +5,9 @@ import org.junit.jupiter.api.Test;
 
 import javax.swing.*;
 import java.time.LocalDate;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InvoiceGUIObserverTest {
@@ -45,4 +47,44 @@ class InvoiceGUIObserverTest {
         assertTrue(logContent.contains("Total: 99.99"),
                 "Log should contain the invoice total");
     }
+
+    @Test
+    void testUpdateBatch_appendsOneLinePerInvoice() throws Exception {
+        JTextArea textArea = new JTextArea();
+        InvoiceGUIObserver observer = new InvoiceGUIObserver(textArea);
+
+        observer.updateBatch(List.of(
+                Invoice.builder().id("INV-101").date(LocalDate.of(2025, 3, 10)).total(1.0).build(),
+                Invoice.builder().id("INV-102").date(LocalDate.of(2025, 3, 10)).total(2.0).build()));
+
+        SwingUtilities.invokeAndWait(() -> {
+            /* No-op, just wait for EDT */ });
+
+        String logContent = textArea.getText();
+        assertEquals(2, logContent.split("\n").length);
+        assertTrue(logContent.contains("Factura generada: INV-101"));
+        assertTrue(logContent.contains("Factura generada: INV-102"));
+    }
+
+    @Test
+    void testBurstOfUpdates_isCappedToMaxLines() throws Exception {
+        JTextArea textArea = new JTextArea();
+        InvoiceGUIObserver observer = new InvoiceGUIObserver(textArea, 50, 16);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                observer.update(Invoice.builder().id("B-" + i).date(LocalDate.of(2025, 3, 10)).total(i).build());
+            }
+        });
+        producer.start();
+        producer.join();
+        // Wait for the pending frame to be painted
+        Thread.sleep(100);
+        SwingUtilities.invokeAndWait(() -> {
+            /* No-op, just wait for EDT */ });
+
+        String[] lines = textArea.getText().split("\n");
+        assertTrue(lines.length <= 50, "The log should keep at most 50 lines, had " + lines.length);
+        assertTrue(lines[lines.length - 1].contains("B-4999"), "The newest invoice should be visible");
+    }
 }
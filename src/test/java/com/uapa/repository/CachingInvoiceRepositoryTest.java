@@ -0,0 +1,184 @@
+package com.uapa.repository;
+
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingInvoiceRepositoryTest {
+
+    private InvoiceRepository delegate;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(InvoiceRepository.class);
+        when(delegate.getInvoiceById(anyString()))
+                .thenAnswer(inv -> Optional.of(invoice(inv.getArgument(0), 10.0)));
+    }
+
+    @Test
+    void testRepeatedLookupsAreServedFromMemory() {
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate);
+
+        Invoice first = repository.getInvoiceById("HOT").orElseThrow();
+        first.getItems().get(0).setQuantity(99);
+        Invoice second = repository.getInvoiceById("HOT").orElseThrow();
+
+        verify(delegate, times(1)).getInvoiceById("HOT");
+        assertEquals(1, second.getItems().get(0).getQuantity(), "Callers must not share the cached instance");
+        InvoiceCacheStats stats = repository.getCacheStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getLoadCount());
+        assertEquals(0.5, stats.getHitRate(), 0.0001);
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getInvoiceById("SLOW")).thenAnswer(inv -> {
+            loadStarted.countDown();
+            release.await();
+            return Optional.of(invoice("SLOW", 5.0));
+        });
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<Optional<Invoice>>> results = new ArrayList<>();
+        results.add(callers.submit(() -> repository.getInvoiceById("SLOW")));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 7; i++) {
+            results.add(callers.submit(() -> repository.getInvoiceById("SLOW")));
+        }
+        // Give the waiting callers time to join the running load
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<Optional<Invoice>> result : results) {
+            assertEquals(5.0, result.get(5, TimeUnit.SECONDS).orElseThrow().getTotal());
+        }
+        callers.shutdown();
+        verify(delegate, times(1)).getInvoiceById("SLOW");
+    }
+
+    @Test
+    void testSaveInvalidatesTheCachedInvoice() {
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate);
+        repository.getInvoiceById("INV-1");
+        when(delegate.getInvoiceById("INV-1")).thenReturn(Optional.of(invoice("INV-1", 42.0)));
+
+        repository.saveInvoice(invoice("INV-1", 42.0));
+
+        assertEquals(42.0, repository.getInvoiceById("INV-1").orElseThrow().getTotal());
+        verify(delegate, times(2)).getInvoiceById("INV-1");
+    }
+
+    @Test
+    void testReadAfterSaveDoesNotJoinALoadStartedBeforeIt() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getInvoiceById("NEW"))
+                .thenAnswer(inv -> {
+                    loadStarted.countDown();
+                    release.await();
+                    return Optional.empty();
+                })
+                .thenReturn(Optional.of(invoice("NEW", 7.0)));
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        Future<Optional<Invoice>> early = callers.submit(() -> repository.getInvoiceById("NEW"));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        repository.saveInvoice(invoice("NEW", 7.0));
+
+        // The read issued after the save must see it, even with the old load still running
+        assertEquals(7.0, repository.getInvoiceById("NEW").orElseThrow().getTotal());
+        release.countDown();
+        assertFalse(early.get(5, TimeUnit.SECONDS).isPresent());
+        callers.shutdown();
+        assertEquals(7.0, repository.getInvoiceById("NEW").orElseThrow().getTotal());
+    }
+
+    @Test
+    void testSaveOfAnotherInvoiceDoesNotPreventCaching() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getInvoiceById("HOT")).thenAnswer(inv -> {
+            loadStarted.countDown();
+            release.await();
+            return Optional.of(invoice("HOT", 3.0));
+        });
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        Future<Optional<Invoice>> load = callers.submit(() -> repository.getInvoiceById("HOT"));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        repository.saveInvoice(invoice("OTHER", 1.0));
+        release.countDown();
+        load.get(5, TimeUnit.SECONDS);
+        callers.shutdown();
+
+        repository.getInvoiceById("HOT");
+        verify(delegate, times(1)).getInvoiceById("HOT");
+    }
+
+    @Test
+    void testMissingInvoicesAreNotCached() {
+        when(delegate.getInvoiceById("NONE")).thenReturn(Optional.empty());
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate);
+
+        assertFalse(repository.getInvoiceById("NONE").isPresent());
+        assertFalse(repository.getInvoiceById("NONE").isPresent());
+
+        verify(delegate, times(2)).getInvoiceById("NONE");
+        assertEquals(0, repository.getCacheStats().getSize());
+    }
+
+    @Test
+    void testFrequentInvoicesSurviveAScanOfOneOffLookups() {
+        CachingInvoiceRepository repository = new CachingInvoiceRepository(delegate,
+                InvoiceCacheConfig.builder().maximumSize(20).windowRatio(0.1).build());
+        List<String> hot = List.of("HOT-1", "HOT-2", "HOT-3", "HOT-4", "HOT-5");
+        for (int round = 0; round < 5; round++) {
+            hot.forEach(repository::getInvoiceById);
+        }
+
+        // Dashboards keep reading the hot invoices, but less often than a plain LRU of
+        // this size would need to keep them
+        for (int i = 0; i < 500; i++) {
+            repository.getInvoiceById("SCAN-" + i);
+            if (i % 30 == 0) {
+                hot.forEach(repository::getInvoiceById);
+            }
+        }
+        clearInvocations(delegate);
+        hot.forEach(repository::getInvoiceById);
+
+        verify(delegate, never()).getInvoiceById(anyString());
+        InvoiceCacheStats stats = repository.getCacheStats();
+        assertTrue(stats.getSize() <= 20, "The cache is bounded: " + stats.getSize());
+        assertTrue(stats.getEvictionCount() >= 480, "Scanned invoices are evicted: " + stats.getEvictionCount());
+    }
+
+    private static Invoice invoice(String id, double total) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, 7, 1))
+                .total(total)
+                .items(new ArrayList<>(List.of(InvoiceItem.builder().product("P").quantity(1).price(total).build())))
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.uapa.repository;
+
+import com.uapa.config.DatabaseConnector;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitInvoiceRepositoryTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:groupcommit;DB_CLOSE_DELAY=-1";
+
+    private DatabaseConnector connector;
+    private GroupCommitInvoiceRepository repository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connector = () -> {
+            try {
+                return DriverManager.getConnection(JDBC_URL, "", "");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS invoices (" +
+                    "id VARCHAR(50) PRIMARY KEY, date DATE NOT NULL, total DOUBLE NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS invoice_items (" +
+                    "invoice_id VARCHAR(50) NOT NULL, product VARCHAR(100) NOT NULL, " +
+                    "quantity INT NOT NULL, price DOUBLE NOT NULL)");
+        }
+        repository = new GroupCommitInvoiceRepository(connector, GroupCommitConfig.builder()
+                .window(Duration.ofMillis(200))
+                .maxBatchSize(50)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        repository.close();
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS invoice_items");
+            statement.execute("DROP TABLE IF EXISTS invoices");
+        }
+    }
+
+    @Test
+    void testConcurrentSaves_areCoalescedIntoFewTransactions() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Invoice invoice = invoice("GC-" + i);
+            results.add(callers.submit(() -> repository.saveInvoice(invoice)));
+        }
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        List<Invoice> saved = repository.getAllInvoices();
+        assertEquals(20, saved.size());
+        assertTrue(saved.stream().allMatch(inv -> inv.getItems().size() == 1));
+        assertTrue(repository.getGroupCount() < 20,
+                "Saves should share transactions, groups: " + repository.getGroupCount());
+    }
+
+    @Test
+    void testFailingInvoice_onlyFailsItsOwnCaller() throws Exception {
+        repository.saveInvoice(invoice("GC-DUP"));
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Future<?> duplicate = callers.submit(() -> repository.saveInvoice(invoice("GC-DUP")));
+        Future<?> valid = callers.submit(() -> repository.saveInvoice(invoice("GC-OK")));
+
+        valid.get(5, TimeUnit.SECONDS);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> duplicate.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RepositoryException.class, ex.getCause());
+        assertInstanceOf(SQLException.class, ex.getCause().getCause());
+        callers.shutdown();
+
+        assertTrue(repository.getInvoiceById("GC-OK").isPresent());
+        assertEquals(2, repository.getAllInvoices().size());
+    }
+
+    @Test
+    void testSavesRacingClose_neverHang() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            results.add(callers.submit(() -> {
+                int saved = 0;
+                try {
+                    while (true) {
+                        repository.saveInvoice(invoice("GC-" + thread + "-" + saved));
+                        saved++;
+                    }
+                } catch (IllegalStateException | RepositoryException closed) {
+                    return saved;
+                }
+            }));
+        }
+        Thread.sleep(100);
+        repository.close();
+
+        int total = 0;
+        for (Future<Integer> result : results) {
+            // Every caller must return once the repository is closed
+            total += result.get(5, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+        assertEquals(total, repository.getAllInvoices().size());
+    }
+
+    private static Invoice invoice(String id) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, 6, 1))
+                .total(12.0)
+                .items(List.of(InvoiceItem.builder().product("Item " + id).quantity(2).price(6.0).build()))
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.uapa.repository;
+
+import com.uapa.config.DatabaseConnector;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import com.uapa.repository.InvoiceOutbox.OutboxEntry;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceOutboxTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1";
+
+    private DatabaseConnector connector;
+    private InvoiceRepositoryImpl repository;
+    private InvoiceOutbox outbox;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connector = () -> {
+            try {
+                return DriverManager.getConnection(JDBC_URL, "", "");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS invoices (" +
+                    "id VARCHAR(50) PRIMARY KEY, date DATE NOT NULL, total DOUBLE NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS invoice_items (" +
+                    "invoice_id VARCHAR(50) NOT NULL, product VARCHAR(100) NOT NULL, " +
+                    "quantity INT NOT NULL, price DOUBLE NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS invoice_outbox (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, invoice_id VARCHAR(50) NOT NULL, " +
+                    "created_at TIMESTAMP NOT NULL, delivered_at TIMESTAMP)");
+        }
+        repository = new InvoiceRepositoryImpl(connector,
+                InvoiceRepositoryConfig.builder().outboxEnabled(true).build());
+        outbox = new InvoiceOutbox(connector);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS invoice_outbox");
+            statement.execute("DROP TABLE IF EXISTS invoice_items");
+            statement.execute("DROP TABLE IF EXISTS invoices");
+        }
+    }
+
+    @Test
+    void testSaveInvoice_writesOutboxEntryWithTheInvoice() {
+        repository.saveInvoice(invoice("OB-1", 2));
+        repository.saveInvoice(invoice("OB-2", 0));
+
+        List<OutboxEntry> pending = outbox.findPending(10);
+
+        assertEquals(2, pending.size());
+        assertEquals("OB-1", pending.get(0).getInvoice().getId());
+        assertEquals(2, pending.get(0).getInvoice().getItems().size());
+        assertEquals("OB-2", pending.get(1).getInvoice().getId());
+        assertTrue(pending.get(1).getInvoice().getItems().isEmpty());
+        assertTrue(pending.get(0).getId() < pending.get(1).getId());
+    }
+
+    @Test
+    void testFailedSave_leavesNoOutboxEntry() {
+        repository.saveInvoice(invoice("OB-DUP", 1));
+
+        assertThrows(RepositoryException.class, () -> repository.saveInvoice(invoice("OB-DUP", 1)));
+
+        assertEquals(1, outbox.countPending());
+    }
+
+    @Test
+    void testMarkDelivered_removesEntriesFromPending() {
+        for (int i = 0; i < 5; i++) {
+            repository.saveInvoice(invoice("OB-" + i, 1));
+        }
+
+        List<OutboxEntry> firstBatch = outbox.findPending(3);
+        assertEquals(3, firstBatch.size());
+        outbox.markDelivered(firstBatch);
+
+        List<OutboxEntry> rest = outbox.findPending(10);
+        assertEquals(2, rest.size());
+        assertEquals("OB-3", rest.get(0).getInvoice().getId());
+        assertEquals(2, outbox.countPending());
+    }
+
+    @Test
+    void testPurgeDelivered_removesOnlyDeliveredEntriesOlderThanTheCutoff() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            repository.saveInvoice(invoice("OB-" + i, 1));
+        }
+        List<OutboxEntry> entries = outbox.findPending(10);
+        outbox.markDelivered(entries.subList(0, 2));
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE invoice_outbox SET delivered_at = TIMESTAMP '2025-01-01 00:00:00' "
+                    + "WHERE id = " + entries.get(0).getId());
+        }
+
+        assertEquals(1, outbox.purgeDelivered(Instant.parse("2025-06-01T00:00:00Z")));
+        assertEquals(1, outbox.purgeDelivered(Instant.now().plusSeconds(60)));
+        // Pending entries are never purged, however old
+        assertEquals(List.of("OB-2"), outbox.findPending(10).stream()
+                .map(entry -> entry.getInvoice().getId())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testBulkSave_writesOutboxEntriesOnlyForSavedInvoices() {
+        repository.saveInvoice(invoice("OB-BULK-1", 1));
+
+        BulkSaveReport report = repository.saveInvoices(List.of(
+                invoice("OB-BULK-1", 1), invoice("OB-BULK-2", 1), invoice("OB-BULK-3", 0)));
+
+        assertEquals(1, report.getRejected().size());
+        assertEquals(3, outbox.countPending());
+    }
+
+    @Test
+    void testOutboxDisabled_writesNothing() {
+        new InvoiceRepositoryImpl(connector).saveInvoice(invoice("OB-OFF", 1));
+
+        assertEquals(0, outbox.countPending());
+    }
+
+    private static Invoice invoice(String id, int items) {
+        Invoice.InvoiceBuilder builder = Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, 3, 1))
+                .total(10.0 * items);
+        if (items > 0) {
+            builder.items(IntStream.range(0, items)
+                    .mapToObj(i -> InvoiceItem.builder().product("P" + i).quantity(1).price(10.0).build())
+                    .collect(Collectors.toList()));
+        }
+        return builder.build();
+    }
+}
@@ -1,69 +1,45 @@
 package com.uapa.repository;
 
 import com.uapa.config.DatabaseConnector;
+import com.uapa.config.H2DatabaseConfig;
+import com.uapa.config.H2DatabaseConnector;
+import com.uapa.config.PooledDatabaseConnector;
 import com.uapa.model.Invoice;
 import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import com.uapa.model.InvoicePage;
 import org.junit.jupiter.api.*;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 public class InvoiceRepositoryImplTest {
 
-    private static final String JDBC_URL = "jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1";
-    private static final String USER = "";
-    private static final String PASSWORD = "";
-
     private DatabaseConnector connector;
     private InvoiceRepositoryImpl repository;
 
     @BeforeEach
-    void setUp() throws SQLException {
-        // Create an anonymous DatabaseConnector that returns an H2 connection
-        connector = new DatabaseConnector() {
-            @Override
-            public Connection getConnection() {
-                try {
-                    return DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        };
+    void setUp() {
+        // Own in-memory database with the migrated schema, not the shared "testdb"
+        connector = new H2DatabaseConnector(H2DatabaseConfig.builder().memoryName("invoice-repository").build());
 
         // Initialize our repository with the in-memory connector
         repository = new InvoiceRepositoryImpl(connector);
-
-        // Create tables for testing
-        try (Connection connection = connector.getConnection();
-                Statement statement = connection.createStatement()) {
-
-            // Create invoices table
-            statement.execute("CREATE TABLE IF NOT EXISTS invoices (" +
-                    "id VARCHAR(50) PRIMARY KEY, " +
-                    "date DATE NOT NULL, " +
-                    "total DOUBLE NOT NULL)");
-
-            // Create invoice_items table
-            statement.execute("CREATE TABLE IF NOT EXISTS invoice_items (" +
-                    "id INTEGER AUTO_INCREMENT PRIMARY KEY, " +
-                    "invoice_id VARCHAR(50) NOT NULL, " +
-                    "product VARCHAR(100) NOT NULL, " +
-                    "quantity INT NOT NULL, " +
-                    "price DOUBLE NOT NULL)");
-        }
     }
 
     @AfterEach
     void tearDown() throws SQLException {
-        // Clean up tables so each test is independent
+        // Drop everything, migration history included, so each test starts from a fresh schema
         try (Connection connection = connector.getConnection();
                 Statement statement = connection.createStatement()) {
-            statement.execute("DROP TABLE IF EXISTS invoice_items");
-            statement.execute("DROP TABLE IF EXISTS invoices");
+            statement.execute("DROP ALL OBJECTS");
         }
     }
 
@@ -140,6 +116,29 @@ public class InvoiceRepositoryImplTest {
         assertEquals(3.75, secondItem.getPrice());
     }
 
+    @Test
+    void testGetInvoiceById_returnsItemsInInsertionOrder() {
+        Invoice invoice = Invoice.builder()
+                .id("INV-0003")
+                .date(LocalDate.of(2025, 3, 9))
+                .total(12.0)
+                .items(List.of(
+                        InvoiceItem.builder().product("Stapler").quantity(1).price(8.0).build(),
+                        InvoiceItem.builder().product("Clips").quantity(4).price(1.0).build()))
+                .build();
+        repository.saveInvoice(invoice);
+        repository.saveInvoice(Invoice.builder().id("INV-0004").date(LocalDate.of(2025, 3, 9)).total(1.0).build());
+
+        Invoice found = repository.getInvoiceById("INV-0003").orElseThrow();
+        assertEquals(12.0, found.getTotal());
+        assertEquals(List.of("Stapler", "Clips"), found.getItems().stream()
+                .map(InvoiceItem::getProduct).collect(Collectors.toList()));
+        assertEquals(4, found.getItems().get(1).getQuantity());
+
+        // Invoices without lines come back with an empty list rather than null
+        assertEquals(List.of(), repository.getInvoiceById("INV-0004").orElseThrow().getItems());
+    }
+
     @Test
     void testGetInvoiceById_notFound() {
         Optional<Invoice> result = repository.getInvoiceById("NON_EXISTENT");
@@ -178,4 +177,226 @@ public class InvoiceRepositoryImplTest {
         assertTrue(invoices.stream().anyMatch(inv -> "INV-1000".equals(inv.getId())));
         assertTrue(invoices.stream().anyMatch(inv -> "INV-2000".equals(inv.getId())));
     }
+
+    @Test
+    void testGetAllInvoices_failedQueryThrowsWithSqlCause() throws SQLException {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE invoice_items");
+        }
+
+        RepositoryException ex = assertThrows(RepositoryException.class, () -> repository.getAllInvoices());
+        assertInstanceOf(SQLException.class, ex.getCause());
+    }
+
+    @Test
+    void testSaveInvoice_duplicateIdThrowsWithSqlCause() {
+        Invoice invoice = Invoice.builder()
+                .id("INV-DUP")
+                .date(LocalDate.of(2025, 5, 1))
+                .total(5.0)
+                .build();
+        repository.saveInvoice(invoice);
+
+        RepositoryException ex = assertThrows(RepositoryException.class, () -> repository.saveInvoice(invoice));
+        assertInstanceOf(SQLException.class, ex.getCause());
+    }
+
+    @Test
+    void testSaveInvoices_commitsInChunksAndReportsRejected() {
+        repository = new InvoiceRepositoryImpl(connector, InvoiceRepositoryConfig.builder()
+                .bulkChunkSize(4)
+                .build());
+        repository.saveInvoice(Invoice.builder()
+                .id("BULK-3")
+                .date(LocalDate.of(2025, 1, 1))
+                .total(1.0)
+                .build());
+
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            invoices.add(Invoice.builder()
+                    .id("BULK-" + i)
+                    .date(LocalDate.of(2025, 1, 1))
+                    .total(i)
+                    .items(List.of(InvoiceItem.builder().product("P" + i).quantity(1).price(i).build()))
+                    .build());
+        }
+
+        BulkSaveReport report = repository.saveInvoices(invoices);
+
+        // 10 invoices in chunks of 4 -> 3 chunks; BULK-3 already exists
+        assertEquals(3, report.getChunks().size());
+        assertEquals(9, report.getSavedCount());
+        assertTrue(report.hasFailures());
+        assertEquals(1, report.getRejected().size());
+        assertEquals("BULK-3", report.getRejected().get(0).getInvoiceId());
+        assertEquals(1, report.getChunks().get(0).getRejected().size(), "The rejection belongs to the first chunk");
+        assertEquals(10, repository.getAllInvoices().size());
+    }
+
+    @Test
+    void testStreamAllInvoices_groupsItemsInIdOrderAndReleasesConnection() {
+        repository.saveInvoice(Invoice.builder()
+                .id("STR-2")
+                .date(LocalDate.of(2025, 2, 2))
+                .total(4.0)
+                .items(List.of(
+                        InvoiceItem.builder().product("B1").quantity(1).price(1.0).build(),
+                        InvoiceItem.builder().product("B2").quantity(1).price(3.0).build()))
+                .build());
+        repository.saveInvoice(Invoice.builder()
+                .id("STR-1")
+                .date(LocalDate.of(2025, 2, 1))
+                .total(0.0)
+                .build());
+
+        PooledDatabaseConnector pool = new PooledDatabaseConnector(connector);
+        InvoiceRepositoryImpl streamingRepository = new InvoiceRepositoryImpl(pool);
+        List<Invoice> streamed;
+        try (Stream<Invoice> stream = streamingRepository.streamAllInvoices()) {
+            assertEquals(1, pool.getStats().getActive(), "The stream holds a connection while open");
+            streamed = stream.collect(Collectors.toList());
+        }
+        assertEquals(0, pool.getStats().getActive(), "Closing the stream returns the connection");
+        pool.close();
+
+        assertEquals(2, streamed.size());
+        assertEquals("STR-1", streamed.get(0).getId());
+        assertTrue(streamed.get(0).getItems().isEmpty());
+        assertEquals("STR-2", streamed.get(1).getId());
+        assertEquals(List.of("B1", "B2"), streamed.get(1).getItems().stream()
+                .map(InvoiceItem::getProduct)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testStreamAllInvoices_failedQueryClosesStatementAndConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement settings = mock(Statement.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.createStatement()).thenReturn(settings);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException("Query failed"));
+        InvoiceRepositoryImpl failingRepository = new InvoiceRepositoryImpl(() -> connection);
+
+        assertThrows(RepositoryException.class, failingRepository::streamAllInvoices);
+        verify(statement).close();
+        // Lazy execution is switched off again before the connection goes back
+        verify(settings).execute("SET LAZY_QUERY_EXECUTION 0");
+        verify(connection).close();
+    }
+
+    @Test
+    void testStreamQuery_readsInIndexOrderWithoutSorting() throws SQLException {
+        String plan = explain(InvoiceRepositoryImpl.STREAM_QUERY);
+        assertTrue(plan.contains("index sorted"), plan);
+        assertTrue(plan.contains("IDX_INVOICE_ITEMS_INVOICE_ID: INVOICE_ID = I.ID"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    @Test
+    void testFindPage_seeksByDateAndId() {
+        // Same date for PAGE-B and PAGE-C so the id breaks the tie
+        repository.saveInvoice(Invoice.builder().id("PAGE-C").date(LocalDate.of(2025, 3, 2)).total(3.0).build());
+        repository.saveInvoice(Invoice.builder().id("PAGE-A").date(LocalDate.of(2025, 3, 1)).total(1.0)
+                .items(List.of(InvoiceItem.builder().product("A1").quantity(1).price(1.0).build()))
+                .build());
+        repository.saveInvoice(Invoice.builder().id("PAGE-B").date(LocalDate.of(2025, 3, 2)).total(2.0).build());
+
+        InvoicePage first = repository.findPage(null, 2);
+        assertEquals(List.of("PAGE-A", "PAGE-B"), ids(first));
+        assertEquals(1, first.getInvoices().get(0).getItems().size());
+        assertTrue(first.hasMore());
+
+        InvoicePage second = repository.findPage(first.getNextKey(), 2);
+        assertEquals(List.of("PAGE-C"), ids(second));
+        assertFalse(second.hasMore());
+    }
+
+    private static List<String> ids(InvoicePage page) {
+        return page.getInvoices().stream().map(Invoice::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void testInvoiceLines_countOffsetAndKeysetAgree() {
+        repository.saveInvoice(Invoice.builder().id("LINE-1").date(LocalDate.of(2025, 4, 1)).total(7.0).build());
+        repository.saveInvoice(Invoice.builder().id("LINE-2").date(LocalDate.of(2025, 4, 2)).total(5.0)
+                .items(List.of(
+                        InvoiceItem.builder().product("X").quantity(1).price(2.0).build(),
+                        InvoiceItem.builder().product("Y").quantity(1).price(3.0).build()))
+                .build());
+
+        assertEquals(3, repository.countInvoiceLines());
+
+        List<InvoiceLine> all = repository.findInvoiceLines(0, 10);
+        assertEquals(3, all.size());
+        assertFalse(all.get(0).hasItem());
+        assertEquals(7.0, all.get(0).getLineTotal());
+        assertEquals("X", all.get(1).getProduct());
+        assertEquals("Y", all.get(2).getProduct());
+
+        // Continuing after each row must give the same rows as skipping with OFFSET
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(repository.findInvoiceLines(i + 1, 10),
+                    repository.findInvoiceLinesAfter(all.get(i), 10));
+        }
+    }
+
+    @Test
+    void testInvoiceLinesAfter_continuesInsideAnInvoiceAcrossSmallBlocks() {
+        repository.saveInvoice(Invoice.builder().id("SEEK-1").date(LocalDate.of(2025, 5, 1)).total(6.0)
+                .items(List.of(
+                        InvoiceItem.builder().product("A").quantity(1).price(1.0).build(),
+                        InvoiceItem.builder().product("B").quantity(1).price(2.0).build(),
+                        InvoiceItem.builder().product("C").quantity(1).price(3.0).build()))
+                .build());
+        repository.saveInvoice(Invoice.builder().id("SEEK-2").date(LocalDate.of(2025, 5, 1)).total(4.0).build());
+        repository.saveInvoice(Invoice.builder().id("SEEK-0").date(LocalDate.of(2025, 5, 2)).total(1.0)
+                .items(List.of(InvoiceItem.builder().product("D").quantity(1).price(1.0).build()))
+                .build());
+
+        // Blocks of two rows split SEEK-1's items and end in the middle of the listing
+        List<String> rows = new ArrayList<>();
+        InvoiceLine last = null;
+        List<InvoiceLine> block;
+        do {
+            block = repository.findInvoiceLinesAfter(last, 2);
+            assertTrue(block.size() <= 2);
+            for (InvoiceLine line : block) {
+                rows.add(line.getInvoiceId() + (line.hasItem() ? ":" + line.getProduct() : ""));
+                last = line;
+            }
+        } while (!block.isEmpty());
+
+        assertEquals(List.of("SEEK-1:A", "SEEK-1:B", "SEEK-1:C", "SEEK-2", "SEEK-0:D"), rows);
+        assertEquals(repository.findInvoiceLines(0, 10).stream().map(InvoiceLine::getItemId)
+                .collect(Collectors.toList()),
+                repository.findInvoiceLinesAfter(null, 10).stream().map(InvoiceLine::getItemId)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSeekQueries_useIndexesInsteadOfScanningOrSorting() throws SQLException {
+        String invoicePlan = explain(InvoiceRepositoryImpl.NEXT_INVOICES_QUERY
+                .replace("(?, ?)", "(DATE '2025-01-01', 'INV')").replace("LIMIT ?", "LIMIT 10"));
+        assertTrue(invoicePlan.contains("IDX_INVOICES_DATE_ID: DATE >= DATE '2025-01-01'"), invoicePlan);
+        assertTrue(invoicePlan.contains("index sorted"), invoicePlan);
+        assertFalse(invoicePlan.contains("tableScan"), invoicePlan);
+
+        String itemPlan = explain(InvoiceRepositoryImpl.REMAINING_ITEMS_QUERY
+                .replace("invoice_id = ?", "invoice_id = 'INV'").replace("id > ?", "id > 1")
+                .replace("LIMIT ?", "LIMIT 10"));
+        assertTrue(itemPlan.contains("IDX_INVOICE_ITEMS_INVOICE_ID: INVOICE_ID = 'INV'"), itemPlan);
+        assertFalse(itemPlan.contains("tableScan"), itemPlan);
+    }
+
+    private String explain(String query) throws SQLException {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("EXPLAIN " + query)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
 }
@@ -0,0 +1,247 @@
+package com.uapa.repository;
+
+import com.uapa.config.DatabaseConnector;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindInvoiceRepositoryTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1";
+
+    @TempDir
+    Path journalDir;
+
+    private DatabaseConnector connector;
+    private InvoiceRepositoryImpl database;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connector = () -> {
+            try {
+                return DriverManager.getConnection(JDBC_URL, "", "");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS invoices (" +
+                    "id VARCHAR(50) PRIMARY KEY, date DATE NOT NULL, total DOUBLE NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS invoice_items (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, invoice_id VARCHAR(50) NOT NULL, " +
+                    "product VARCHAR(100) NOT NULL, quantity INT NOT NULL, price DOUBLE NOT NULL)");
+        }
+        database = new InvoiceRepositoryImpl(connector);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = connector.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS invoice_items");
+            statement.execute("DROP TABLE IF EXISTS invoices");
+        }
+    }
+
+    @Test
+    void testSavesAreJournaledAndAppliedInBatches() {
+        WriteBehindInvoiceRepository repository = new WriteBehindInvoiceRepository(database, journalDir,
+                WriteBehindConfig.builder()
+                        .flushInterval(Duration.ofSeconds(30))
+                        .maxBatchSize(100)
+                        .build());
+
+        for (int i = 0; i < 250; i++) {
+            repository.saveInvoice(invoice("WB-" + i));
+        }
+        // Pending invoices are visible by id before they reach the database
+        assertEquals(1, repository.getInvoiceById("WB-249").orElseThrow().getItems().size());
+        assertThrows(RepositoryException.class, () -> repository.saveInvoice(invoice("WB-249")));
+        repository.close();
+
+        assertEquals(250, database.getAllInvoices().size());
+        WriteBehindStats stats = repository.getStats();
+        assertEquals(0, stats.getPendingCount());
+        assertEquals(0, stats.getUnflushedBytes());
+        assertEquals(250, stats.getFlushedCount());
+        assertTrue(stats.getBatchCount() <= 5, "Invoices are applied in large batches: " + stats.getBatchCount());
+    }
+
+    @Test
+    void testUnflushedInvoicesAreReplayedOnStartup() {
+        InvoiceRepository unavailable = mock(InvoiceRepository.class);
+        when(unavailable.saveInvoices(anyCollection())).thenThrow(new RepositoryException("Database down", null));
+        WriteBehindInvoiceRepository crashed = new WriteBehindInvoiceRepository(unavailable, journalDir);
+        crashed.saveInvoice(invoice("WB-A"));
+        crashed.saveInvoices(List.of(invoice("WB-B"), invoice("WB-C")));
+        WriteBehindStats pending = crashed.getStats();
+        assertEquals(3, pending.getPendingCount());
+        assertTrue(pending.getJournalBytes() > 0);
+        crashed.close();
+
+        WriteBehindInvoiceRepository restarted = new WriteBehindInvoiceRepository(database, journalDir);
+
+        assertEquals(3, restarted.getStats().getReplayedCount());
+        assertEquals(0, restarted.getStats().getPendingCount());
+        assertTrue(database.getInvoiceById("WB-B").isPresent());
+        restarted.close();
+    }
+
+    @Test
+    void testTornRecordAtTheEndIsDiscarded() throws IOException {
+        InvoiceRepository unavailable = mock(InvoiceRepository.class);
+        when(unavailable.saveInvoices(anyCollection())).thenThrow(new RepositoryException("Database down", null));
+        WriteBehindInvoiceRepository crashed = new WriteBehindInvoiceRepository(unavailable, journalDir);
+        crashed.saveInvoice(invoice("WB-OK"));
+        crashed.close();
+        // A crash in the middle of the next append leaves half a record
+        Files.write(journalDir.resolve("invoices.wal"), new byte[] { 0, 0, 0, 40, 1, 2, 3 },
+                StandardOpenOption.APPEND);
+
+        WriteBehindInvoiceRepository restarted = new WriteBehindInvoiceRepository(database, journalDir);
+        restarted.saveInvoice(invoice("WB-NEXT"));
+        restarted.close();
+
+        assertEquals(1, restarted.getStats().getReplayedCount());
+        assertTrue(database.getInvoiceById("WB-OK").isPresent());
+        assertTrue(database.getInvoiceById("WB-NEXT").isPresent());
+    }
+
+    @Test
+    void testInvoiceRejectedAtFlushFailsItsFutureAndIsKept() throws Exception {
+        database.saveInvoice(invoice("WB-TAKEN", 1.0));
+        WriteBehindInvoiceRepository repository = new WriteBehindInvoiceRepository(database, journalDir);
+
+        CompletableFuture<Void> conflicting = repository.saveInvoiceAsync(invoice("WB-TAKEN", 2.0));
+        CompletableFuture<Void> fresh = repository.saveInvoiceAsync(invoice("WB-FRESH", 2.0));
+
+        fresh.get(5, TimeUnit.SECONDS);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> conflicting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RepositoryException.class, ex.getCause());
+        repository.close();
+
+        assertEquals(1, repository.getStats().getRejectedCount());
+        // The rejected invoice survives a restart in the rejected file
+        WriteBehindInvoiceRepository reopened = new WriteBehindInvoiceRepository(database, journalDir);
+        List<Invoice> rejected = reopened.getRejectedInvoices();
+        assertEquals(1, rejected.size());
+        assertEquals(2.0, rejected.get(0).getTotal());
+        assertEquals(1.0, database.getInvoiceById("WB-TAKEN").orElseThrow().getTotal());
+        reopened.close();
+    }
+
+    @Test
+    void testReplayOfAlreadyAppliedInvoicesIsNotARejection() throws IOException {
+        WriteBehindInvoiceRepository first = new WriteBehindInvoiceRepository(database, journalDir);
+        first.saveInvoice(invoice("WB-DONE"));
+        first.close();
+        // A crash after the commit and before the checkpoint replays the batch
+        Files.write(journalDir.resolve("invoices.checkpoint"), ByteBuffer.allocate(Long.BYTES).putLong(0).array());
+
+        WriteBehindInvoiceRepository restarted = new WriteBehindInvoiceRepository(database, journalDir);
+        assertTrue(restarted.getRejectedInvoices().isEmpty());
+        restarted.close();
+
+        assertEquals(1, restarted.getStats().getReplayedCount());
+        assertEquals(0, restarted.getStats().getRejectedCount());
+    }
+
+    @Test
+    void testCheckpointBeyondTheEndOfTheJournalDoesNotSkipEntries() throws IOException {
+        InvoiceRepository unavailable = mock(InvoiceRepository.class);
+        when(unavailable.saveInvoices(anyCollection())).thenThrow(new RepositoryException("Database down", null));
+        WriteBehindInvoiceRepository crashed = new WriteBehindInvoiceRepository(unavailable, journalDir);
+        crashed.saveInvoice(invoice("WB-1"));
+        crashed.saveInvoice(invoice("WB-2"));
+        crashed.close();
+        // Left behind by a compaction that truncated the journal and crashed before saving checkpoint 0
+        Files.write(journalDir.resolve("invoices.checkpoint"),
+                ByteBuffer.allocate(Long.BYTES).putLong(16L * 1024 * 1024).array());
+
+        WriteBehindInvoiceRepository restarted = new WriteBehindInvoiceRepository(database, journalDir);
+        restarted.close();
+
+        assertEquals(2, restarted.getStats().getReplayedCount());
+        assertTrue(database.getInvoiceById("WB-1").isPresent());
+        assertTrue(database.getInvoiceById("WB-2").isPresent());
+    }
+
+    @Test
+    void testFailingDatabaseIsRetriedWithGrowingBackoff() throws InterruptedException {
+        InvoiceRepository unavailable = mock(InvoiceRepository.class);
+        when(unavailable.saveInvoices(anyCollection())).thenThrow(new RepositoryException("Database down", null));
+        // A full batch is pending, which used to make the flusher retry without parking
+        WriteBehindInvoiceRepository repository = new WriteBehindInvoiceRepository(unavailable, journalDir,
+                WriteBehindConfig.builder()
+                        .maxBatchSize(2)
+                        .flushInterval(Duration.ofMillis(20))
+                        .maxRetryBackoff(Duration.ofMillis(160))
+                        .build());
+        repository.saveInvoices(List.of(invoice("WB-R1"), invoice("WB-R2"), invoice("WB-R3")));
+
+        Thread.sleep(500);
+        repository.close();
+
+        // Waits of 20, 40, 80 and then 160 ms leave room for only a handful of attempts
+        int attempts = mockingDetails(unavailable).getInvocations().size();
+        assertTrue(attempts >= 3 && attempts <= 10, "Attempts in 500 ms: " + attempts);
+    }
+
+    @Test
+    void testAppendsAreRejectedOncePendingLimitIsReached() {
+        InvoiceRepository unavailable = mock(InvoiceRepository.class);
+        when(unavailable.saveInvoices(anyCollection())).thenThrow(new RepositoryException("Database down", null));
+        WriteBehindInvoiceRepository repository = new WriteBehindInvoiceRepository(unavailable, journalDir,
+                WriteBehindConfig.builder().maxPendingInvoices(2).build());
+        repository.saveInvoice(invoice("WB-L1"));
+        repository.saveInvoice(invoice("WB-L2"));
+
+        assertThrows(RepositoryException.class, () -> repository.saveInvoice(invoice("WB-L3")));
+        assertThrows(RepositoryException.class, () -> repository.saveInvoiceAsync(invoice("WB-L3")));
+        assertEquals(2, repository.getStats().getPendingCount());
+        repository.close();
+    }
+
+    @Test
+    void testSecondInstanceCannotOpenTheSameJournal() {
+        WriteBehindInvoiceRepository repository = new WriteBehindInvoiceRepository(database, journalDir);
+        assertThrows(IllegalStateException.class, () -> new WriteBehindInvoiceRepository(database, journalDir));
+        repository.close();
+    }
+
+    private static Invoice invoice(String id) {
+        return invoice(id, 9.0);
+    }
+
+    private static Invoice invoice(String id, double total) {
+        return Invoice.builder()
+                .id(id)
+                .date(LocalDate.of(2025, 8, 1))
+                .total(total)
+                .items(List.of(InvoiceItem.builder().product("Item " + id).quantity(3).price(3.0).build()))
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.uapa.service;
+
+import com.uapa.model.Invoice;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyIndexTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testDuplicateKeyReturnsOriginalResultWithoutRunningAgain() throws Exception {
+        IdempotencyIndex index = new IdempotencyIndex(IdempotencyConfig.defaults(), clock);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Invoice> pending = new CompletableFuture<>();
+
+        CompletableFuture<Invoice> first = index.computeIfAbsent("K", () -> {
+            runs.incrementAndGet();
+            return pending;
+        });
+        // A retry while the first submission is still in flight
+        CompletableFuture<Invoice> retry = index.computeIfAbsent("K", () -> {
+            runs.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        Invoice invoice = invoice("K");
+        pending.complete(invoice);
+
+        assertSame(invoice, first.get());
+        assertSame(invoice, retry.get());
+        assertSame(invoice, index.computeIfAbsent("K", () -> fail("Must not run again")).get());
+        assertEquals(1, runs.get());
+        assertEquals(2, index.getHitCount());
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        IdempotencyIndex index = new IdempotencyIndex(IdempotencyConfig.builder()
+                .ttl(Duration.ofMinutes(1))
+                .build(), clock);
+        AtomicInteger runs = new AtomicInteger();
+
+        index.computeIfAbsent("K", () -> completed(runs));
+        clock.advance(Duration.ofSeconds(59));
+        index.computeIfAbsent("K", () -> completed(runs));
+        clock.advance(Duration.ofSeconds(2));
+        index.computeIfAbsent("K", () -> completed(runs));
+
+        assertEquals(2, runs.get());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testIndexIsBoundedByEvictingTheOldestKeys() {
+        IdempotencyIndex index = new IdempotencyIndex(IdempotencyConfig.builder()
+                .maxEntries(3)
+                .build(), clock);
+        AtomicInteger runs = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            index.computeIfAbsent("K" + i, () -> completed(runs));
+        }
+        index.computeIfAbsent("K4", () -> completed(runs));
+        index.computeIfAbsent("K0", () -> completed(runs));
+
+        assertEquals(3, index.size());
+        assertEquals(6, runs.get(), "K4 is still known, K0 was evicted");
+        assertEquals(3, index.getEvictionCount());
+    }
+
+    @Test
+    void testFailedSubmissionsAreForgottenSoTheyCanBeRetried() {
+        IdempotencyIndex index = new IdempotencyIndex(IdempotencyConfig.defaults(), clock);
+        CompletableFuture<Invoice> failed = index.computeIfAbsent("K",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("db down")));
+        assertThrows(ExecutionException.class, failed::get);
+
+        assertThrows(RejectedExecutionException.class, () -> index.computeIfAbsent("R", () -> {
+            throw new RejectedExecutionException("full");
+        }));
+
+        AtomicInteger runs = new AtomicInteger();
+        index.computeIfAbsent("K", () -> completed(runs));
+        index.computeIfAbsent("R", () -> completed(runs));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testFailedSubmissionsDoNotAccumulateInTheEvictionOrder() {
+        IdempotencyIndex index = new IdempotencyIndex(IdempotencyConfig.builder().maxEntries(3).build(), clock);
+        for (int i = 0; i < 100; i++) {
+            index.computeIfAbsent("F" + i, () -> CompletableFuture.failedFuture(new IllegalStateException("db down")));
+        }
+        AtomicInteger runs = new AtomicInteger();
+        index.computeIfAbsent("K", () -> completed(runs));
+
+        assertEquals(1, index.size());
+        assertEquals(1, index.trackedCount());
+        assertEquals(0, index.getEvictionCount());
+    }
+
+    @Test
+    void testFailuresBehindALiveEntryAreCompactedAway() {
+        IdempotencyIndex index = new IdempotencyIndex(IdempotencyConfig.builder().maxEntries(3).build(), clock);
+        AtomicInteger runs = new AtomicInteger();
+        index.computeIfAbsent("K", () -> completed(runs));
+        for (int i = 0; i < 100; i++) {
+            index.computeIfAbsent("F" + i, () -> CompletableFuture.failedFuture(new IllegalStateException("db down")));
+            // The live head stops lazy skipping, so only compaction keeps the order bounded
+            assertTrue(index.trackedCount() <= 1 + 3 + 1);
+        }
+
+        assertEquals(1, index.size());
+        assertEquals(0, index.getEvictionCount());
+        index.computeIfAbsent("K", () -> completed(runs));
+        assertEquals(1, runs.get());
+    }
+
+    private static CompletableFuture<Invoice> completed(AtomicInteger runs) {
+        return CompletableFuture.completedFuture(invoice("INV-" + runs.incrementAndGet()));
+    }
+
+    private static Invoice invoice(String id) {
+        return Invoice.builder().id(id).date(LocalDate.of(2025, 5, 1)).total(1.0).build();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-05-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.uapa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceExecutorTest {
+
+    @Test
+    void testRejectPolicy_throwsWhenQueueIsFull() throws InterruptedException {
+        InvoiceExecutor executor = new InvoiceExecutor(InvoiceExecutorConfig.builder()
+                .poolSize(1)
+                .queueCapacity(1)
+                .overflowPolicy(InvoiceExecutorConfig.OverflowPolicy.REJECT)
+                .build());
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // One task running plus one queued fills the executor
+        executor.submit(blocking);
+        executor.submit(blocking);
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(blocking));
+        assertEquals(1, executor.getStats().getRejected());
+
+        release.countDown();
+        executor.shutdown();
+        assertEquals(2, executor.getStats().getCompleted());
+    }
+
+    @Test
+    void testBackpressurePolicy_blocksUntilSpaceIsAvailable() throws InterruptedException {
+        InvoiceExecutor executor = new InvoiceExecutor(InvoiceExecutorConfig.builder()
+                .poolSize(1)
+                .queueCapacity(0)
+                .overflowPolicy(InvoiceExecutorConfig.OverflowPolicy.BACKPRESSURE)
+                .build());
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CountDownLatch secondSubmitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            executor.submit(() -> { });
+            secondSubmitted.countDown();
+        });
+        producer.start();
+
+        assertFalse(secondSubmitted.await(200, TimeUnit.MILLISECONDS),
+                "The producer should block while the executor is full");
+        release.countDown();
+        assertTrue(secondSubmitted.await(2, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void testShutdown_drainsQueuedTasks() {
+        for (InvoiceExecutorConfig.Type type : InvoiceExecutorConfig.Type.values()) {
+            InvoiceExecutor executor = new InvoiceExecutor(InvoiceExecutorConfig.builder()
+                    .type(type)
+                    .poolSize(2)
+                    .queueCapacity(100)
+                    .build());
+            AtomicInteger processed = new AtomicInteger();
+            for (int i = 0; i < 50; i++) {
+                executor.submit(processed::incrementAndGet);
+            }
+
+            executor.shutdown();
+
+            assertEquals(50, processed.get(), "All queued tasks should run for " + type);
+            InvoiceExecutorStats stats = executor.getStats();
+            assertEquals(50, stats.getSubmitted());
+            assertEquals(50, stats.getCompleted());
+            assertEquals(0, stats.getQueueDepth());
+            assertTrue(stats.getMaxLatencyMillis() >= stats.getAverageLatencyMillis());
+            assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> { }));
+        }
+    }
+
+    @Test
+    void testInteractiveLaneGoesFirstWhileBulkKeepsItsShare() throws InterruptedException {
+        InvoiceExecutor executor = new InvoiceExecutor(InvoiceExecutorConfig.builder()
+                .poolSize(1)
+                .queueCapacity(100)
+                .bulkShare(0.25)
+                .build());
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<String> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String name = "B" + i;
+            executor.submit(() -> order.add(name), InvoicePriority.BULK);
+        }
+        for (int i = 0; i < 5; i++) {
+            String name = "I" + i;
+            executor.submit(() -> order.add(name), InvoicePriority.INTERACTIVE);
+        }
+
+        release.countDown();
+        executor.shutdown();
+
+        assertEquals(25, order.size());
+        assertEquals("I0", order.get(0), "Interactive work jumps the bulk queue");
+        assertTrue(order.indexOf("I4") < 7, "All interactive work runs early: " + order);
+        assertTrue(order.indexOf("B0") < 4, "Bulk still gets one turn in four: " + order);
+        InvoiceExecutorStats stats = executor.getStats();
+        assertEquals(5, stats.getLane(InvoicePriority.INTERACTIVE).getCompleted());
+        assertEquals(20, stats.getLane(InvoicePriority.BULK).getCompleted());
+        assertEquals(1, stats.getLane(InvoicePriority.NORMAL).getCompleted());
+        assertTrue(stats.getLane(InvoicePriority.BULK).getMaxLatencyMillis()
+                >= stats.getLane(InvoicePriority.INTERACTIVE).getAverageLatencyMillis());
+    }
+
+    @Test
+    void testBulkReceivesItsShareOfTurnsUnderSaturation() throws InterruptedException {
+        InvoiceExecutor executor = new InvoiceExecutor(InvoiceExecutorConfig.builder()
+                .poolSize(1)
+                .queueCapacity(400)
+                .bulkShare(0.3)
+                .build());
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // Both lanes stay non-empty for the first 200 turns
+        List<InvoicePriority> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> order.add(InvoicePriority.NORMAL), InvoicePriority.NORMAL);
+            executor.submit(() -> order.add(InvoicePriority.BULK), InvoicePriority.BULK);
+        }
+
+        release.countDown();
+        executor.shutdown();
+
+        long bulkTurns = order.subList(0, 200).stream().filter(p -> p == InvoicePriority.BULK).count();
+        // A fixed "one turn in ceil(1 / share)" interval would give 50 (25%)
+        assertTrue(bulkTurns >= 59 && bulkTurns <= 61, "BULK turns out of 200: " + bulkTurns);
+        assertEquals(400, order.size());
+    }
+
+    @Test
+    void testFullBulkQueueDoesNotBlockInteractiveSubmissions() throws InterruptedException {
+        InvoiceExecutor executor = new InvoiceExecutor(InvoiceExecutorConfig.builder()
+                .poolSize(1)
+                .queueCapacity(1)
+                .interactiveQueueCapacity(1)
+                .overflowPolicy(InvoiceExecutorConfig.OverflowPolicy.REJECT)
+                .build());
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.submit(blocking, InvoicePriority.BULK);
+        executor.submit(blocking, InvoicePriority.BULK);
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> { }, InvoicePriority.BULK));
+
+        executor.submit(() -> { }, InvoicePriority.INTERACTIVE);
+
+        release.countDown();
+        executor.shutdown();
+        assertEquals(1, executor.getStats().getLane(InvoicePriority.INTERACTIVE).getCompleted());
+    }
+}
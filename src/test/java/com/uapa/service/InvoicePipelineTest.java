@@ -0,0 +1,127 @@
+package com.uapa.service;
+
+import com.uapa.model.Invoice;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoicePipelineTest {
+
+    @Test
+    void testInvoicePassesThroughEveryStageInOrder() throws Exception {
+        List<String> visited = new CopyOnWriteArrayList<>();
+        InvoicePipeline pipeline = new InvoicePipeline(List.of(
+                stage("first", invoice -> {
+                    visited.add("first");
+                    invoice.setTotal(invoice.getTotal() + 1);
+                    return invoice;
+                }),
+                stage("second", invoice -> {
+                    visited.add("second");
+                    invoice.setTotal(invoice.getTotal() * 2);
+                    return invoice;
+                })));
+
+        Invoice result = pipeline.process(invoice("P-1"), InvoicePriority.NORMAL).get(5, TimeUnit.SECONDS);
+        pipeline.close();
+
+        assertEquals(List.of("first", "second"), visited);
+        assertEquals(22.0, result.getTotal(), 0.0001);
+        List<StageStats> stats = pipeline.getStageStats();
+        assertEquals("first", stats.get(0).getName());
+        assertEquals(1, stats.get(0).getProcessed());
+        assertEquals(1, stats.get(1).getExecutor().getCompleted());
+    }
+
+    @Test
+    void testFailingStageStopsTheInvoiceAndIsCounted() {
+        AtomicInteger reachedLast = new AtomicInteger();
+        IllegalArgumentException invalid = new IllegalArgumentException("bad invoice");
+        InvoicePipeline pipeline = new InvoicePipeline(List.of(
+                stage("validate", invoice -> {
+                    throw invalid;
+                }),
+                stage("persist", invoice -> {
+                    reachedLast.incrementAndGet();
+                    return invoice;
+                })));
+
+        CompletableFuture<Invoice> result = pipeline.process(invoice("P-2"), InvoicePriority.NORMAL);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertSame(invalid, ex.getCause());
+        pipeline.close();
+        assertEquals(0, reachedLast.get());
+        assertEquals(1, pipeline.getStageStats().get(0).getFailed());
+        assertEquals(0, pipeline.getStageStats().get(1).getProcessed());
+    }
+
+    @Test
+    void testStagesScaleIndependently() throws Exception {
+        // A slow stage with four threads overlaps its invoices; the single-threaded one does not
+        CountDownLatch allInSlowStage = new CountDownLatch(4);
+        AtomicInteger concurrentInSerial = new AtomicInteger();
+        AtomicInteger maxConcurrentInSerial = new AtomicInteger();
+        InvoicePipeline pipeline = new InvoicePipeline(List.of(
+                PipelineStage.builder()
+                        .name("slow")
+                        .executor(InvoiceExecutorConfig.builder().poolSize(4).build())
+                        .handler(invoice -> {
+                            allInSlowStage.countDown();
+                            try {
+                                assertTrue(allInSlowStage.await(5, TimeUnit.SECONDS));
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return invoice;
+                        })
+                        .build(),
+                PipelineStage.builder()
+                        .name("serial")
+                        .executor(InvoiceExecutorConfig.builder().poolSize(1).build())
+                        .handler(invoice -> {
+                            maxConcurrentInSerial.accumulateAndGet(
+                                    concurrentInSerial.incrementAndGet(), Math::max);
+                            concurrentInSerial.decrementAndGet();
+                            return invoice;
+                        })
+                        .build()));
+
+        List<CompletableFuture<Invoice>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(pipeline.process(invoice("P-" + i), InvoicePriority.NORMAL));
+        }
+        for (CompletableFuture<Invoice> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        pipeline.close();
+
+        assertEquals(1, maxConcurrentInSerial.get());
+        StageStats slow = pipeline.getStageStats().get(0);
+        assertEquals(4, slow.getProcessed());
+        assertTrue(slow.getMaxProcessingMillis() >= slow.getAverageProcessingMillis());
+    }
+
+    private static PipelineStage stage(String name, UnaryOperator<Invoice> handler) {
+        return PipelineStage.builder()
+                .name(name)
+                .handler(handler)
+                .executor(InvoiceExecutorConfig.builder().poolSize(1).build())
+                .build();
+    }
+
+    private static Invoice invoice(String id) {
+        return Invoice.builder().id(id).date(LocalDate.of(2025, 6, 1)).total(10.0).build();
+    }
+}
@@ -1,15 +1,24 @@
 package com.uapa.service;
 
+import com.uapa.event.InvoiceEvent;
 import com.uapa.event.InvoiceEventPublisher;
+import com.uapa.event.InvoiceEventType;
 import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import com.uapa.repository.BulkSaveReport;
 import com.uapa.repository.InvoiceRepository;
+import com.uapa.repository.RepositoryException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +33,8 @@ class InvoiceServiceImplTest {
     void setUp() {
         // Create mocks
         repositoryMock = mock(InvoiceRepository.class);
+        // Saves complete synchronously, as in the default repository implementation
+        when(repositoryMock.saveInvoiceAsync(any())).thenCallRealMethod();
         eventPublisherMock = mock(InvoiceEventPublisher.class);
 
         // Instantiate the service with mocks
@@ -104,4 +115,164 @@ class InvoiceServiceImplTest {
         assertEquals("INV-003", publishedInvoice.getId());
     }
 
+    @Test
+    void testCreateInvoiceAsync_completesAfterSaveAndPublish() throws Exception {
+        Invoice invoice = Invoice.builder()
+                .id("INV-004")
+                .date(LocalDate.now())
+                .total(75.0)
+                .build();
+
+        CompletableFuture<Invoice> future = service.createInvoiceAsync(invoice);
+
+        assertSame(invoice, future.get(5, TimeUnit.SECONDS));
+        verify(repositoryMock, times(1)).saveInvoice(invoice);
+        verify(eventPublisherMock, times(1)).publishInvoiceCreated(invoice);
+    }
+
+    @Test
+    void testCreateInvoiceAsync_failsWithSqlExceptionCause() {
+        Invoice invoice = Invoice.builder()
+                .id("INV-005")
+                .date(LocalDate.now())
+                .total(10.0)
+                .build();
+        SQLException cause = new SQLException("duplicate key");
+        doThrow(new RepositoryException("Error saving invoice INV-005", cause))
+                .when(repositoryMock).saveInvoice(invoice);
+
+        CompletableFuture<Invoice> future = service.createInvoiceAsync(invoice);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertSame(cause, ex.getCause());
+        // A failed save must not publish the event
+        verify(eventPublisherMock, never()).publishInvoiceCreated(any());
+        // but it is reported as a FAILED event
+        verify(eventPublisherMock).publishEvent(argThat(event ->
+                event.getType() == InvoiceEventType.FAILED && event.getCause() == cause));
+    }
+
+    @Test
+    void testDeferredSave_isPublishedOnlyOnceApplied() throws Exception {
+        Invoice applied = Invoice.builder().id("INV-WB1").date(LocalDate.now()).total(10.0).build();
+        Invoice rejected = Invoice.builder().id("INV-WB2").date(LocalDate.now()).total(10.0).build();
+        CompletableFuture<Void> appliedSave = new CompletableFuture<>();
+        CompletableFuture<Void> rejectedSave = new CompletableFuture<>();
+        doReturn(appliedSave).when(repositoryMock).saveInvoiceAsync(applied);
+        doReturn(rejectedSave).when(repositoryMock).saveInvoiceAsync(rejected);
+
+        CompletableFuture<Invoice> first = service.createInvoiceAsync(applied);
+        CompletableFuture<Invoice> second = service.createInvoiceAsync(rejected);
+        verify(repositoryMock, timeout(5000)).saveInvoiceAsync(rejected);
+
+        // Journaled but not yet in the database: nothing is published
+        verify(eventPublisherMock, after(100).never()).publishInvoiceCreated(any());
+        appliedSave.complete(null);
+        SQLException cause = new SQLException("duplicate key");
+        rejectedSave.completeExceptionally(new RepositoryException("Invoice INV-WB2 was rejected", cause));
+
+        assertSame(applied, first.get(5, TimeUnit.SECONDS));
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertSame(cause, ex.getCause());
+        verify(eventPublisherMock, times(1)).publishInvoiceCreated(applied);
+        verify(eventPublisherMock, never()).publishInvoiceCreated(rejected);
+        verify(eventPublisherMock).publishEvent(argThat(event ->
+                event.getType() == InvoiceEventType.FAILED && event.getCause() == cause));
+    }
+
+    @Test
+    void testRetriedSubmission_isAnsweredWithTheOriginalResult() throws Exception {
+        Invoice invoice = Invoice.builder()
+                .id("INV-006")
+                .date(LocalDate.now())
+                .total(30.0)
+                .build();
+
+        CompletableFuture<Invoice> first = service.createInvoiceAsync(invoice);
+        CompletableFuture<Invoice> retry = service.createInvoiceAsync(invoice);
+        CompletableFuture<Invoice> keyed = service.createInvoiceAsync("req-1", invoice);
+
+        assertSame(invoice, first.get(5, TimeUnit.SECONDS));
+        assertSame(invoice, retry.get(5, TimeUnit.SECONDS));
+        assertSame(invoice, keyed.get(5, TimeUnit.SECONDS));
+        // The retry reused the first result; the explicit key is a separate submission
+        verify(repositoryMock, times(2)).saveInvoice(invoice);
+        assertEquals(1, service.getDuplicateCount());
+    }
+
+    @Test
+    void testInvalidInvoice_isRejectedBeforeReachingTheRepository() {
+        Invoice invoice = Invoice.builder()
+                .id("INV-007")
+                .date(LocalDate.now())
+                .items(List.of(InvoiceItem.builder().product("Broken").quantity(0).price(5.0).build()))
+                .build();
+
+        CompletableFuture<Invoice> future = service.createInvoiceAsync(invoice);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        verify(repositoryMock, never()).saveInvoice(any());
+        List<StageStats> stages = service.getStageStats();
+        assertEquals("validate", stages.get(0).getName());
+        assertEquals(1, stages.get(0).getFailed());
+    }
+
+    @Test
+    void testPricingStage_recomputesTotalWithTax() throws Exception {
+        service = new InvoiceServiceImpl(repositoryMock, eventPublisherMock,
+                InvoicePipelineConfig.builder().taxRate(0.18).build(), IdempotencyConfig.defaults());
+        Invoice invoice = Invoice.builder()
+                .id("INV-008")
+                .date(LocalDate.now())
+                .items(List.of(InvoiceItem.builder().product("Taxed").quantity(2).price(50.0).build()))
+                .total(0.0)
+                .build();
+
+        Invoice saved = service.createInvoiceAsync(invoice).get(5, TimeUnit.SECONDS);
+
+        assertEquals(118.0, saved.getTotal(), 0.0001);
+        // The caller's invoice is left as it was submitted
+        assertEquals(0.0, invoice.getTotal());
+        service.shutdown();
+        assertEquals(1, service.getStageStats().get(3).getProcessed());
+    }
+
+    @Test
+    void testImportInvoices_publishesABatchEventWithTheSavedInvoices() {
+        // Bulk saves go through the default one-by-one implementation; IMP-2 is rejected
+        when(repositoryMock.saveInvoices(anyCollection())).thenCallRealMethod();
+        SQLException duplicate = new SQLException("Duplicate id");
+        doThrow(new RepositoryException("Error saving invoice", duplicate)).when(repositoryMock)
+                .saveInvoice(argThat(invoice -> "IMP-2".equals(invoice.getId())));
+        List<Invoice> invoices = List.of(
+                Invoice.builder().id("IMP-1").date(LocalDate.now()).total(1.0).build(),
+                Invoice.builder().id("IMP-2").date(LocalDate.now()).total(2.0).build(),
+                Invoice.builder().id("IMP-3").date(LocalDate.now()).total(3.0).build());
+
+        BulkSaveReport report = service.importInvoices(invoices);
+
+        assertEquals(2, report.getSavedCount());
+        ArgumentCaptor<InvoiceEvent> events = ArgumentCaptor.forClass(InvoiceEvent.class);
+        verify(eventPublisherMock, times(2)).publishEvent(events.capture());
+        InvoiceEvent failed = events.getAllValues().get(0);
+        assertEquals(InvoiceEventType.FAILED, failed.getType());
+        assertEquals("IMP-2", failed.getInvoice().getId());
+        InvoiceEvent batch = events.getAllValues().get(1);
+        assertEquals(InvoiceEventType.BATCH_IMPORTED, batch.getType());
+        assertEquals(List.of("IMP-1", "IMP-3"), List.of(batch.getInvoices().get(0).getId(),
+                batch.getInvoices().get(1).getId()));
+        verify(eventPublisherMock, times(2)).publishInvoiceCreated(any());
+    }
+
+    @Test
+    void testImportInvoices_invalidInvoiceStopsTheImportBeforeSaving() {
+        List<Invoice> invoices = List.of(
+                Invoice.builder().id("IMP-OK").date(LocalDate.now()).total(1.0).build(),
+                Invoice.builder().id("IMP-NODATE").total(1.0).build());
+
+        assertThrows(IllegalArgumentException.class, () -> service.importInvoices(invoices));
+        verify(repositoryMock, never()).saveInvoices(anyCollection());
+        verifyNoInteractions(eventPublisherMock);
+    }
 }
@@ -0,0 +1,103 @@
+package com.uapa.service;
+
+import com.uapa.event.InvoiceEventPublisher;
+import com.uapa.model.Invoice;
+import com.uapa.repository.InvoiceOutbox;
+import com.uapa.repository.InvoiceOutbox.OutboxEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private InvoiceOutbox mockOutbox;
+    private InvoiceEventPublisher mockPublisher;
+
+    @BeforeEach
+    void setUp() {
+        mockOutbox = mock(InvoiceOutbox.class);
+        mockPublisher = mock(InvoiceEventPublisher.class);
+    }
+
+    @Test
+    void testRelayPending_publishesInBatchesAndMarksDelivered() {
+        List<OutboxEntry> first = List.of(entry(1, "A"), entry(2, "B"));
+        List<OutboxEntry> second = List.of(entry(3, "C"));
+        when(mockOutbox.findPending(2)).thenReturn(first, second);
+        OutboxRelay relay = new OutboxRelay(mockOutbox, mockPublisher,
+                OutboxRelayConfig.builder().batchSize(2).build());
+
+        assertEquals(3, relay.relayPending());
+
+        InOrder inOrder = inOrder(mockPublisher, mockOutbox);
+        inOrder.verify(mockPublisher).publishInvoiceCreated(first.get(0).getInvoice());
+        inOrder.verify(mockPublisher).publishInvoiceCreated(first.get(1).getInvoice());
+        inOrder.verify(mockOutbox).markDelivered(first);
+        inOrder.verify(mockPublisher).publishInvoiceCreated(second.get(0).getInvoice());
+        inOrder.verify(mockOutbox).markDelivered(second);
+        assertEquals(3, relay.getRelayedCount());
+    }
+
+    @Test
+    void testPublishFailure_marksOnlyPublishedEntries() {
+        List<OutboxEntry> batch = List.of(entry(1, "A"), entry(2, "B"), entry(3, "C"));
+        when(mockOutbox.findPending(anyInt())).thenReturn(batch);
+        doNothing().doThrow(new IllegalStateException("closed"))
+                .when(mockPublisher).publishInvoiceCreated(any(Invoice.class));
+        OutboxRelay relay = new OutboxRelay(mockOutbox, mockPublisher);
+
+        assertThrows(IllegalStateException.class, relay::relayPending);
+
+        // B and C stay pending and are published again on the next attempt
+        verify(mockOutbox).markDelivered(batch.subList(0, 1));
+        assertEquals(1, relay.getRelayedCount());
+    }
+
+    @Test
+    void testNotification_triggersPollBeforeTheInterval() {
+        Invoice invoice = entry(1, "A").getInvoice();
+        when(mockOutbox.findPending(anyInt())).thenReturn(List.of(), List.of(entry(1, "A")), List.of());
+        OutboxRelay relay = new OutboxRelay(mockOutbox, mockPublisher,
+                OutboxRelayConfig.builder().pollInterval(Duration.ofMinutes(1)).build());
+        relay.start();
+
+        verify(mockOutbox, timeout(2000).times(1)).findPending(anyInt());
+        relay.publishInvoiceCreated(invoice);
+
+        verify(mockPublisher, timeout(2000)).publishInvoiceCreated(invoice);
+        relay.close();
+    }
+
+    @Test
+    void testPollLoop_purgesDeliveredEntriesOlderThanTheRetention() {
+        when(mockOutbox.findPending(anyInt())).thenReturn(List.of());
+        OutboxRelay relay = new OutboxRelay(mockOutbox, mockPublisher, OutboxRelayConfig.builder()
+                .pollInterval(Duration.ofMillis(10))
+                .deliveredRetention(Duration.ofHours(1))
+                .purgeInterval(Duration.ofMinutes(1))
+                .build());
+        relay.start();
+
+        verify(mockOutbox, timeout(2000)).purgeDelivered(argThat(cutoff ->
+                cutoff.isBefore(Instant.now().minus(Duration.ofMinutes(59)))));
+        relay.close();
+        // Only once per purge interval, however often the loop polls
+        verify(mockOutbox, times(1)).purgeDelivered(any());
+    }
+
+    private static OutboxEntry entry(long id, String invoiceId) {
+        return new OutboxEntry(id, Invoice.builder()
+                .id(invoiceId)
+                .date(LocalDate.of(2025, 3, 1))
+                .total(1.0)
+                .build());
+    }
+}
@@ -3,14 +3,16 @@ package com.uapa.view;
 import com.uapa.controller.InvoiceController;
 import com.uapa.model.Invoice;
 import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
 import org.junit.jupiter.api.*;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.Component; // <-- ADD THIS IMPORT
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,11 +34,11 @@ class InvoiceListViewTest {
                 .date(LocalDate.of(2025, 3, 10))
                 .total(99.99)
                 .build();
-        when(mockController.getAllInvoices()).thenReturn(Collections.singletonList(invoice));
+        stubLines(invoice);
 
         // When/Then: Construct the view on the Event Dispatch Thread
+        InvoiceListView view = openView();
         SwingUtilities.invokeAndWait(() -> {
-            InvoiceListView view = new InvoiceListView(mockController);
 
             view.setVisible(true);
 
@@ -47,7 +49,7 @@ class InvoiceListViewTest {
 
             // Retrieve the table model to check row data
             JTable table = getTableFromView(view);
-            DefaultTableModel model = (DefaultTableModel) table.getModel();
+            TableModel model = table.getModel();
             assertEquals(1, model.getRowCount(), "Expect exactly 1 row for one invoice without items");
 
             // Verify row content
@@ -101,13 +103,13 @@ class InvoiceListViewTest {
                 // But let's keep a total for logical completeness.
                 .total(item1.getPrice() * item1.getQuantity() + item2.getPrice() * item2.getQuantity())
                 .build();
-        when(mockController.getAllInvoices()).thenReturn(Collections.singletonList(invoice));
+        stubLines(invoice);
 
         // Construct and verify in the EDT
+        InvoiceListView view = openView();
         SwingUtilities.invokeAndWait(() -> {
-            InvoiceListView view = new InvoiceListView(mockController);
             JTable table = getTableFromView(view);
-            DefaultTableModel model = (DefaultTableModel) table.getModel();
+            TableModel model = table.getModel();
 
             // For an invoice with 2 items, we should have 2 rows
             assertEquals(2, model.getRowCount());
@@ -169,15 +171,16 @@ class InvoiceListViewTest {
                 .build();
 
         // Setup stubbing for consecutive calls
-        when(mockController.getAllInvoices())
-                .thenReturn(Collections.singletonList(invoice1))
-                .thenReturn(Arrays.asList(invoice2, invoice3));
+        when(mockController.countInvoiceLines()).thenReturn(1L, 2L);
+        when(mockController.findInvoiceLinesAfter(any(), anyInt()))
+                .thenReturn(InvoiceLine.linesOf(invoice1))
+                .thenReturn(Arrays.asList(InvoiceLine.linesOf(invoice2).get(0), InvoiceLine.linesOf(invoice3).get(0)));
 
         // Construct the view
+        InvoiceListView view = openView();
         SwingUtilities.invokeAndWait(() -> {
-            InvoiceListView view = new InvoiceListView(mockController);
             JTable table = getTableFromView(view);
-            DefaultTableModel model = (DefaultTableModel) table.getModel();
+            TableModel model = table.getModel();
 
             // Initially, should have 1 row
             assertEquals(1, model.getRowCount(), "Initially should display 1 invoice");
@@ -187,6 +190,20 @@ class InvoiceListViewTest {
         });
     }
 
+    // Builds the view on the EDT and waits for its background load to finish
+    private InvoiceListView openView() throws Exception {
+        AtomicReference<InvoiceListView> view = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> view.set(new InvoiceListView(mockController)));
+        InvoiceTableModelTest.waitForLoad((InvoiceTableModel) getTableFromView(view.get()).getModel());
+        return view.get();
+    }
+
+    // Stubs the controller so the lazy table model sees the invoice's lines
+    private void stubLines(Invoice invoice) {
+        when(mockController.countInvoiceLines()).thenReturn((long) InvoiceLine.linesOf(invoice).size());
+        when(mockController.findInvoiceLinesAfter(any(), anyInt())).thenReturn(InvoiceLine.linesOf(invoice));
+    }
+
     // Helper method to extract the table from the frame
     private JTable getTableFromView(InvoiceListView view) {
         // Because we know the InvoiceListView layout,
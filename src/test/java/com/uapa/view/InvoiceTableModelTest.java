@@ -0,0 +1,282 @@
+package com.uapa.view;
+
+import com.uapa.controller.InvoiceController;
+import com.uapa.model.Invoice;
+import com.uapa.model.InvoiceItem;
+import com.uapa.model.InvoiceLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InvoiceTableModelTest {
+
+    private InvoiceController mockController;
+    private List<InvoiceLine> lines;
+
+    @BeforeEach
+    void setUp() {
+        mockController = mock(InvoiceController.class);
+        lines = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            lines.add(InvoiceLine.builder()
+                    .invoiceId("INV-" + i)
+                    .date(LocalDate.of(2025, 1, 1))
+                    .invoiceTotal(i)
+                    .product("P" + i)
+                    .quantity(2)
+                    .price(i)
+                    .itemId((long) i)
+                    .build());
+        }
+        when(mockController.countInvoiceLines()).thenReturn((long) lines.size());
+        when(mockController.findInvoiceLinesAfter(any(), anyInt())).thenAnswer(inv -> {
+            InvoiceLine last = inv.getArgument(0);
+            int from = last == null ? 0 : lines.indexOf(last) + 1;
+            return slice(from, inv.getArgument(1));
+        });
+        when(mockController.findInvoiceLines(anyLong(), anyInt()))
+                .thenAnswer(inv -> slice((int) (long) inv.getArgument(0), inv.getArgument(1)));
+    }
+
+    @Test
+    void testReloadLoadsCountAndFirstBlocksInBackground() throws Exception {
+        InvoiceTableModel model = newModel(5, 10);
+        onEdt(() -> {
+            model.reload();
+            assertTrue(model.isLoading(), "The reload should not block the EDT");
+            return null;
+        });
+
+        waitForLoad(model);
+
+        assertEquals(25, (int) onEdt(model::getRowCount));
+        assertEquals(InvoiceTableModel.PRELOAD_BLOCKS, (int) onEdt(model::getCachedBlockCount));
+        assertEquals("INV-12", onEdt(() -> model.getValueAt(12, 0)));
+        assertEquals(24.0, (double) onEdt(() -> model.getValueAt(12, 2)), 0.0001);
+        assertEquals("P12", onEdt(() -> model.getValueAt(12, 3)));
+        verify(mockController, times(1)).findInvoiceLinesAfter(lines.get(9), 10);
+    }
+
+    @Test
+    void testMissingBlockShowsPlaceholderAndContinuesFromPreviousBlock() throws Exception {
+        InvoiceTableModel model = newModel(5, 10);
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+
+        assertEquals(InvoiceTableModel.LOADING_TEXT, onEdt(() -> model.getValueAt(21, 0)));
+        // The block arrives through the EDT queue
+        assertEquals("INV-21", onEdt(() -> model.getValueAt(21, 0)));
+        verify(mockController, times(1)).findInvoiceLinesAfter(lines.get(19), 10);
+        verify(mockController, never()).findInvoiceLines(anyLong(), anyInt());
+    }
+
+    @Test
+    void testRandomJumpUsesOffsetAndCacheIsBounded() throws Exception {
+        InvoiceTableModel model = newModel(2, 5);
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+
+        onEdt(() -> model.getValueAt(22, 0));
+        assertEquals("INV-22", onEdt(() -> model.getValueAt(22, 0)));
+        verify(mockController, times(1)).findInvoiceLines(20L, 5);
+        assertEquals(2, (int) onEdt(model::getCachedBlockCount), "Only the most recent blocks are kept");
+    }
+
+    @Test
+    void testNewReloadDiscardsInFlightReload() throws Exception {
+        CountDownLatch firstCountStarted = new CountDownLatch(1);
+        CountDownLatch slowCount = new CountDownLatch(1);
+        when(mockController.countInvoiceLines())
+                .thenAnswer(inv -> {
+                    firstCountStarted.countDown();
+                    try {
+                        slowCount.await();
+                    } catch (InterruptedException e) {
+                        // Cancelled by the second reload
+                    }
+                    return 99L;
+                })
+                .thenReturn((long) lines.size());
+        InvoiceTableModel model = newModel(5, 10);
+
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        firstCountStarted.await();
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        slowCount.countDown();
+        waitForLoad(model);
+
+        assertEquals(25, (int) onEdt(model::getRowCount), "The stale count must be discarded");
+    }
+
+    @Test
+    void testBurstOfNewInvoicesIsInsertedOncePerFrame() throws Exception {
+        InvoiceTableModel model = newModel(5, 10);
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+        // Load the last block so the position at the end of the listing is known
+        onEdt(() -> model.getValueAt(22, 0));
+        assertEquals("INV-22", onEdt(() -> model.getValueAt(22, 0)));
+        List<TableModelEvent> inserts = new CopyOnWriteArrayList<>();
+        model.addTableModelListener(e -> {
+            if (e.getType() == TableModelEvent.INSERT) {
+                inserts.add(e);
+            }
+        });
+
+        // Published from a worker thread, as the service does
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                model.appendInvoice(Invoice.builder()
+                        .id("NEW-" + i)
+                        .date(LocalDate.of(2025, 2, 1))
+                        .total(10.0)
+                        .items(List.of(InvoiceItem.builder().product("X").quantity(1).price(10.0).build()))
+                        .build());
+            }
+        });
+        publisher.start();
+        publisher.join();
+        Thread.sleep(InvoiceTableModel.FRAME_MILLIS * 5L);
+        onEdt(() -> null);
+
+        assertEquals(1, inserts.size(), "The burst should produce a single insert event");
+        assertEquals(25, inserts.get(0).getFirstRow());
+        assertEquals(29, inserts.get(0).getLastRow());
+        assertEquals(30, (int) onEdt(model::getRowCount));
+        assertEquals("NEW-4", onEdt(() -> model.getValueAt(29, 0)));
+
+        // A refresh recounts the rows, so the appended ones are not shown twice
+        when(mockController.countInvoiceLines()).thenReturn(30L);
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+        assertEquals(30, (int) onEdt(model::getRowCount));
+    }
+
+    @Test
+    void testInvoiceAppendedDuringTheCountIsKeptAfterReload() throws Exception {
+        InvoiceTableModel model = newModel(5, 10);
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+        model.appendInvoice(save(Invoice.builder().id("NEW-1").date(LocalDate.of(2025, 2, 1)).total(1.0).build()));
+
+        // NEW-1 is included in the count; LATE is saved after the count query ran
+        when(mockController.countInvoiceLines()).thenAnswer(inv -> {
+            model.appendInvoice(save(Invoice.builder().id("LATE").date(LocalDate.of(2025, 2, 2)).total(1.0).build()));
+            return 26L;
+        });
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+
+        assertEquals(27, (int) onEdt(model::getRowCount));
+        onEdt(() -> model.getValueAt(26, 0));
+        assertEquals("LATE", onEdt(() -> model.getValueAt(26, 0)));
+    }
+
+    @Test
+    void testInvoiceIsInsertedAtItsPositionAndLaterBlocksAreReloaded() throws Exception {
+        InvoiceTableModel model = newModel(5, 10);
+        onEdt(() -> {
+            model.reload();
+            return null;
+        });
+        waitForLoad(model);
+        List<TableModelEvent> events = new CopyOnWriteArrayList<>();
+        model.addTableModelListener(events::add);
+
+        // Dated before every other invoice, so it belongs in the first row
+        Invoice older = Invoice.builder().id("OLD").date(LocalDate.of(2024, 12, 31)).total(3.0).build();
+        lines.add(0, InvoiceLine.linesOf(older).get(0));
+        model.appendInvoice(older);
+        Thread.sleep(InvoiceTableModel.FRAME_MILLIS * 5L);
+        onEdt(() -> null);
+
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(0, events.get(0).getFirstRow());
+        assertEquals(0, events.get(0).getLastRow());
+        assertEquals(26, (int) onEdt(model::getRowCount));
+        // The cached block takes the new row; the row pushed out of it is not shown twice
+        assertEquals("OLD", onEdt(() -> model.getValueAt(0, 0)));
+        assertEquals("INV-8", onEdt(() -> model.getValueAt(9, 0)));
+        assertEquals(InvoiceTableModel.LOADING_TEXT, onEdt(() -> model.getValueAt(10, 0)));
+        assertEquals("INV-9", onEdt(() -> model.getValueAt(10, 0)));
+        onEdt(() -> model.getValueAt(25, 0));
+        assertEquals("INV-24", onEdt(() -> model.getValueAt(25, 0)));
+    }
+
+    // Adds the invoice's rows to the end of the listing, as saving a later invoice would
+    private Invoice save(Invoice invoice) {
+        lines.addAll(InvoiceLine.linesOf(invoice));
+        return invoice;
+    }
+
+    private InvoiceTableModel newModel(int maxBlocks, int blockSize) {
+        // Blocks are loaded on the calling thread; results still go through the EDT
+        return new InvoiceTableModel(mockController, blockSize, maxBlocks, Runnable::run);
+    }
+
+    private List<InvoiceLine> slice(int from, int limit) {
+        return new ArrayList<>(lines.subList(Math.min(from, lines.size()), Math.min(from + limit, lines.size())));
+    }
+
+    private static <T> T onEdt(Callable<T> action) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.set(action.call());
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return result.get();
+    }
+
+    static void waitForLoad(InvoiceTableModel model) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (onEdt(model::isLoading)) {
+            assertTrue(System.currentTimeMillis() < deadline, "The model did not finish loading");
+            Thread.sleep(10);
+        }
+        // Let any block results already queued on the EDT be applied
+        onEdt(() -> null);
+    }
+}